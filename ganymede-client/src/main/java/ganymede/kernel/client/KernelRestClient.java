@@ -23,6 +23,8 @@ import ganymede.kernel.client.api.DefaultApi;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import lombok.NoArgsConstructor;
+import lombok.Synchronized;
 import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
 
@@ -40,11 +42,27 @@ public class KernelRestClient extends ApiClient {
      */
     public static final String PORT_PROPERTY = "kernel.port";
 
+    private static volatile Integer port = null;
+
+    private final Conditional<List<String>> imports = new Conditional<>();
+    private final Conditional<Map<String,String>> variables = new Conditional<>();
+
     {
-        setPort(Integer.decode(System.getProperty(PORT_PROPERTY)));
+        setPort((port != null) ? port : Integer.decode(System.getProperty(PORT_PROPERTY)));
         setRequestInterceptor(t -> t.header("Accept", "application/json"));
     }
 
+    /**
+     * Method to set the {@link ganymede.kernel.Kernel}'s REST server port
+     * for clients created in this {@link ClassLoader} (overriding
+     * {@value #PORT_PROPERTY}).  Used when the notebook runs in the kernel
+     * JVM so the port need not be set as a global {@link System}
+     * property.
+     *
+     * @param   port            The port.
+     */
+    public static void setDefaultPort(int port) { KernelRestClient.port = port; }
+
     /**
      * See {@link DefaultApi#kernelId()}.
      */
@@ -68,6 +86,16 @@ public class KernelRestClient extends ApiClient {
         new DefaultApi(this).display(bundle);
     }
 
+    /**
+     * See {@link DefaultApi#updateDisplay(JsonNode)}.
+     *
+     * @param   bundle          The MIME bundle {@link JsonNode} (with
+     *                          {@code transient.display_id}).
+     */
+    public void updateDisplay(JsonNode bundle) throws Exception {
+        new DefaultApi(this).updateDisplay(bundle);
+    }
+
     /**
      * See {@link DefaultApi#print(JsonNode)}.
      *
@@ -85,16 +113,49 @@ public class KernelRestClient extends ApiClient {
     }
 
     /**
-     * See {@link DefaultApi#imports()}.
+     * See {@link DefaultApi#imports(String)}.  The previous result is
+     * returned if unchanged ({@code If-None-Match}).
      */
     public List<String> imports() throws Exception {
-        return new DefaultApi(this).imports();
+        return imports.get(t -> new DefaultApi(this).importsWithHttpInfo(t));
     }
 
     /**
-     * See {@link DefaultApi#variables()}.
+     * See {@link DefaultApi#variables(String)}.  The previous result is
+     * returned if unchanged ({@code If-None-Match}).
      */
     public Map<String,String> variables() throws Exception {
-        return new DefaultApi(this).variables();
+        return variables.get(t -> new DefaultApi(this).variablesWithHttpInfo(t));
+    }
+
+    @FunctionalInterface
+    private interface Request<T> {
+        public ApiResponse<T> apply(String ifNoneMatch) throws Exception;
+    }
+
+    @NoArgsConstructor @ToString
+    private static class Conditional<T> {
+        private static final int NOT_MODIFIED = 304;
+
+        private String etag = null;
+        private T value = null;
+
+        @Synchronized
+        public T get(Request<T> request) throws Exception {
+            try {
+                var response = request.apply(etag);
+
+                value = response.getData();
+                etag =
+                    response.getHeaders().getOrDefault("ETag", List.of()).stream()
+                    .findFirst().orElse(null);
+            } catch (ApiException exception) {
+                if (exception.getCode() != NOT_MODIFIED || value == null) {
+                    throw exception;
+                }
+            }
+
+            return value;
+        }
     }
 }
@@ -18,11 +18,10 @@ package ganymede.jsr223;
  * limitations under the License.
  * ##########################################################################
  */
-import freemarker.cache.StringTemplateLoader;
 import freemarker.template.Configuration;
+import freemarker.template.Template;
 import freemarker.template.Version;
 import java.io.StringWriter;
-import java.util.Objects;
 import javax.script.ScriptContext;
 import javax.script.ScriptException;
 import lombok.Data;
@@ -40,7 +39,7 @@ import static javax.script.ScriptContext.ENGINE_SCOPE;
  * {@bean.info}
  *
  * @see Configuration
- * @see StringTemplateLoader
+ * @see TemplateCache
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -48,7 +47,6 @@ import static javax.script.ScriptContext.ENGINE_SCOPE;
 public class FreeMarkerScriptEngine extends AbstractScriptEngine {
     private final FreeMarkerScriptEngineFactory factory;
     private final Configuration configuration;
-    private final StringTemplateLoader loader = new StringTemplateLoader();
 
     /**
      * Sole constructor.
@@ -59,7 +57,6 @@ public class FreeMarkerScriptEngine extends AbstractScriptEngine {
         var version = new Version(factory.getEngineVersion());
 
         configuration = new Configuration(version);
-        configuration.setTemplateLoader(loader);
     }
 
     @Override
@@ -69,11 +66,9 @@ public class FreeMarkerScriptEngine extends AbstractScriptEngine {
         try {
             var arguments = new Arguments();
             var result = parse(context, arguments);
-            var name = String.class.getName() + "@" + Integer.toString(Objects.hashCode(script));
-
-            loader.putTemplate(name, script);
-
-            var template = configuration.getTemplate(name);
+            var template =
+                TemplateCache.INSTANCE.get(configuration, "", script,
+                                           () -> new Template(null, script, configuration));
             var bindings = context.getBindings(ENGINE_SCOPE);
 
             template.process(bindings, out);
@@ -37,6 +37,8 @@ import static lombok.AccessLevel.PROTECTED;
  *
  * {@bean.info}
  *
+ * @see TemplateCache
+ *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 @RequiredArgsConstructor(access = PROTECTED) @Getter @ToString @Log4j2
@@ -50,7 +52,9 @@ public class MustacheScriptEngine extends AbstractScriptEngine {
         try {
             var arguments = new Arguments();
             var result = parse(context, arguments);
-            var template = Mustache.compiler().compile(script);
+            var template =
+                TemplateCache.INSTANCE.get(Mustache.class, "", script,
+                                           () -> Mustache.compiler().compile(script));
 
             out = template.execute(context.getBindings(ENGINE_SCOPE));
         } catch (ParameterException exception) {
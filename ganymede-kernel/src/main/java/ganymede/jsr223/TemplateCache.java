@@ -0,0 +1,257 @@
+package ganymede.jsr223;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import lombok.Getter;
+import lombok.Synchronized;
+import lombok.ToString;
+import lombok.Value;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Size-bounded LRU cache of compiled templates shared by the template
+ * {@link javax.script.ScriptEngine}s.  Entries are keyed by engine, mode,
+ * and template source hash.  The engine key is the object the compiled
+ * template depends on (e.g., the FreeMarker
+ * {@link freemarker.template.Configuration}) so a template is never
+ * reused with an engine (or configuration) other than the one that
+ * compiled it.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class TemplateCache {
+
+    /**
+     * Default maximum number of entries ({@value #DEFAULT_SIZE}).
+     */
+    public static final int DEFAULT_SIZE = 256;
+
+    /**
+     * {@link System} property to override {@link #DEFAULT_SIZE}
+     * ({@value #SIZE_PROPERTY}).
+     */
+    public static final String SIZE_PROPERTY = "ganymede.jsr223.template-cache.size";
+
+    /**
+     * Shared {@link TemplateCache} instance.
+     */
+    public static final TemplateCache INSTANCE = new TemplateCache(getDefaultSize());
+
+    @Getter @ToString.Include
+    private final int size;
+    private final Map<Key,Object> map;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   size            The maximum number of entries.
+     */
+    public TemplateCache(int size) {
+        this.size = size;
+        this.map =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = -2392818163738400437L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key,Object> eldest) {
+                    return size() > TemplateCache.this.size;
+                }
+            };
+    }
+
+    /**
+     * Method to get the configured cache size.
+     *
+     * @return  The value of {@link #SIZE_PROPERTY} (or
+     *          {@link #DEFAULT_SIZE}).
+     */
+    public static int getDefaultSize() {
+        return Math.max(1, Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE));
+    }
+
+    /**
+     * Method to get a compiled template, compiling (and caching) it on a
+     * miss.  Compilation is performed outside the cache lock.
+     *
+     * @param   <T>             The compiled template type.
+     * @param   engine          The engine key.
+     * @param   mode            The template mode (may be empty).
+     * @param   source          The template source.
+     * @param   compiler        The {@link Callable} to compile the
+     *                          template.
+     *
+     * @return  The compiled template.
+     *
+     * @throws  Exception       If the template cannot be compiled.
+     */
+    public <T> T get(Object engine, String mode, String source, Callable<T> compiler) throws Exception {
+        var key = new Key(engine, mode, hash(source));
+        @SuppressWarnings({ "unchecked" })
+        var value = (T) lookup(key);
+
+        if (value == null) {
+            value = compiler.call();
+
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Method to get a cached template.
+     *
+     * @param   engine          The engine key.
+     * @param   mode            The template mode (may be empty).
+     * @param   source          The template source.
+     *
+     * @return  The cached template or {@code null} if there is none.
+     */
+    public Object get(Object engine, String mode, String source) {
+        return lookup(new Key(engine, mode, hash(source)));
+    }
+
+    /**
+     * Method to cache a compiled template.
+     *
+     * @param   engine          The engine key.
+     * @param   mode            The template mode (may be empty).
+     * @param   source          The template source.
+     * @param   value           The compiled template.
+     */
+    public void put(Object engine, String mode, String source, Object value) {
+        put(new Key(engine, mode, hash(source)), value);
+    }
+
+    /**
+     * Method to remove a cached template.
+     *
+     * @param   engine          The engine key.
+     * @param   mode            The template mode (may be empty).
+     * @param   source          The template source.
+     */
+    @Synchronized
+    public void remove(Object engine, String mode, String source) {
+        map.remove(new Key(engine, mode, hash(source)));
+    }
+
+    @Synchronized
+    private Object lookup(Key key) {
+        var value = map.get(key);
+
+        if (value != null) {
+            hits += 1;
+        } else {
+            misses += 1;
+        }
+
+        return value;
+    }
+
+    @Synchronized
+    private void put(Key key, Object value) { map.put(key, value); }
+
+    /**
+     * Method to remove all entries for an engine.
+     *
+     * @param   engine          The engine key.
+     */
+    @Synchronized
+    public void clear(Object engine) {
+        map.keySet().removeIf(t -> t.getEngine().equals(engine));
+    }
+
+    /**
+     * Method to remove all entries.
+     */
+    @Synchronized
+    public void clear() { map.clear(); }
+
+    /**
+     * Method to get the number of entries.
+     *
+     * @return  The number of entries.
+     */
+    @Synchronized @ToString.Include
+    public int entries() { return map.size(); }
+
+    /**
+     * Method to get the number of lookups that found a cached template.
+     *
+     * @return  The hit count.
+     */
+    @Synchronized @ToString.Include
+    public long hits() { return hits; }
+
+    /**
+     * Method to get the number of lookups that did not find a cached
+     * template.
+     *
+     * @return  The miss count.
+     */
+    @Synchronized @ToString.Include
+    public long misses() { return misses; }
+
+    /**
+     * Method to get cache statistics.
+     *
+     * @return  The {@link Map} of statistic names and values.
+     */
+    @Synchronized
+    public Map<String,Object> stats() {
+        var stats = new LinkedHashMap<String,Object>();
+
+        stats.put("size", size);
+        stats.put("entries", map.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+
+        return stats;
+    }
+
+    private static String hash(String source) {
+        var hash = String.valueOf(source.hashCode());
+
+        try {
+            var bytes = MessageDigest.getInstance("SHA-256").digest(source.getBytes(UTF_8));
+
+            hash = new BigInteger(1, bytes).toString(16);
+        } catch (Exception exception) {
+            exception.printStackTrace(System.err);
+        }
+
+        return source.length() + ":" + hash;
+    }
+
+    @Value
+    private static class Key {
+        private final Object engine;
+        private final String mode;
+        private final String hash;
+    }
+}
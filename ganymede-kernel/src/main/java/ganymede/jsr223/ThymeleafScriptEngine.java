@@ -18,6 +18,10 @@ package ganymede.jsr223;
  * limitations under the License.
  * ##########################################################################
  */
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import javax.script.ScriptContext;
 import javax.script.ScriptException;
@@ -27,7 +31,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.cache.AbstractCacheManager;
+import org.thymeleaf.cache.ExpressionCacheKey;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.cache.TemplateCacheKey;
 import org.thymeleaf.context.Context;
+import org.thymeleaf.engine.TemplateModel;
 import org.thymeleaf.extras.java8time.dialect.Java8TimeDialect;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.StringTemplateResolver;
@@ -46,13 +58,16 @@ import static lombok.AccessLevel.PROTECTED;
  * @see TemplateEngine
  * @see StringTemplateResolver
  * @see Java8TimeDialect
+ * @see TemplateCache
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 @RequiredArgsConstructor(access = PROTECTED) @Getter @ToString @Log4j2
 public class ThymeleafScriptEngine extends AbstractScriptEngine {
+    private static final Map<TemplateMode,TemplateEngine> ENGINES = new ConcurrentHashMap<>();
+
     private final ThymeleafScriptEngineFactory factory;
-    private final StringTemplateResolver resolver = new StringTemplateResolver();
+    private volatile TemplateMode templateMode = StringTemplateResolver.DEFAULT_TEMPLATE_MODE;
 
     @Override
     public String eval(String script, ScriptContext context) throws ScriptException {
@@ -61,17 +76,11 @@ public class ThymeleafScriptEngine extends AbstractScriptEngine {
         try {
             var arguments = new Arguments();
             var result = parse(context, arguments);
-
-            resolver.setTemplateMode(arguments.getMode());
-
-            var engine = new TemplateEngine();
-
-            engine.setTemplateResolver(resolver);
-            engine.addDialect(new Java8TimeDialect());
-
+            var mode = arguments.getMode();
             var bindings = context.getBindings(ENGINE_SCOPE);
 
-            out = engine.process(script, new Context(null, bindings));
+            templateMode = mode;
+            out = getTemplateEngine(mode).process(new TemplateSpec(script, mode), new Context(null, bindings));
         } catch (ParameterException exception) {
             System.err.println(exception.getMessage());
             System.err.println();
@@ -83,6 +92,118 @@ public class ThymeleafScriptEngine extends AbstractScriptEngine {
         return out;
     }
 
+    /**
+     * Method to get the shared (thread-safe) {@link TemplateEngine} for a
+     * {@link TemplateMode}.  The resolver is cacheable so each template
+     * is parsed once; the parsed templates are held in the shared
+     * {@link TemplateCache}.
+     *
+     * @param   mode            The {@link TemplateMode}.
+     *
+     * @return  The {@link TemplateEngine}.
+     */
+    public static TemplateEngine getTemplateEngine(TemplateMode mode) {
+        return ENGINES.computeIfAbsent(mode, ThymeleafScriptEngine::engine);
+    }
+
+    private static TemplateEngine engine(TemplateMode mode) {
+        var resolver = new StringTemplateResolver();
+
+        resolver.setTemplateMode(mode);
+        resolver.setCacheable(true);
+
+        var engine = new TemplateEngine();
+
+        engine.setTemplateResolver(resolver);
+        engine.setCacheManager(new CacheManager());
+        engine.addDialect(new Java8TimeDialect());
+
+        return engine;
+    }
+
+    /**
+     * {@link org.thymeleaf.cache.ICacheManager} whose parsed-template
+     * cache is backed by {@link TemplateCache#INSTANCE}.  Thymeleaf cannot
+     * execute a detached parsed template so the engine looks its
+     * templates up through this cache.  The expression cache is
+     * Thymeleaf's default.
+     */
+    @ToString
+    private static class CacheManager extends AbstractCacheManager {
+        private final StandardCacheManager standard = new StandardCacheManager();
+
+        @Override
+        protected ICache<TemplateCacheKey,TemplateModel> initializeTemplateCache() {
+            return new Cache();
+        }
+
+        @Override
+        protected ICache<ExpressionCacheKey,Object> initializeExpressionCache() {
+            return standard.getExpressionCache();
+        }
+    }
+
+    @ToString
+    private static class Cache implements ICache<TemplateCacheKey,TemplateModel> {
+        @Override
+        public void put(TemplateCacheKey key, TemplateModel value) {
+            TemplateCache.INSTANCE.put(this, mode(key), source(key), new Entry(value, System.currentTimeMillis()));
+        }
+
+        @Override
+        public TemplateModel get(TemplateCacheKey key) { return get(key, null); }
+
+        @Override
+        public TemplateModel get(TemplateCacheKey key,
+                                 ICacheEntryValidityChecker<? super TemplateCacheKey,? super TemplateModel> checker) {
+            var entry = (Entry) TemplateCache.INSTANCE.get(this, mode(key), source(key));
+            var value = (entry != null) ? entry.getValue() : null;
+
+            if (value != null && checker != null) {
+                if (! checker.checkIsValueStillValid(key, value, entry.getTime())) {
+                    clearKey(key);
+                    value = null;
+                }
+            }
+
+            return value;
+        }
+
+        @Override
+        public void clear() { TemplateCache.INSTANCE.clear(this); }
+
+        @Override
+        public void clearKey(TemplateCacheKey key) {
+            TemplateCache.INSTANCE.remove(this, mode(key), source(key));
+        }
+
+        /*
+         * Entries are keyed by source hash so the keys cannot be
+         * enumerated; only clearTemplateCacheFor(String) relies on this.
+         */
+        @Override
+        public Set<TemplateCacheKey> keySet() { return Collections.emptySet(); }
+
+        private String mode(TemplateCacheKey key) {
+            return String.valueOf(key.getTemplateMode());
+        }
+
+        private String source(TemplateCacheKey key) {
+            return String.join("\n",
+                               String.valueOf(key.getOwnerTemplate()),
+                               String.valueOf(key.getTemplateSelectors()),
+                               key.getLineOffset() + ":" + key.getColOffset(),
+                               String.valueOf(key.getTemplateResolutionAttributes()),
+                               key.getTemplate());
+        }
+
+        @Data
+        private static class Entry {
+            private final TemplateModel value;
+            private final long time;
+        }
+    }
+
     @Command @Data
     private class Arguments {
         @Parameters(description = { "One of: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})" },
@@ -83,6 +83,9 @@ public class Kernel extends Server implements KernelApi, ApplicationContextAware
     @Value("${hive-home:#{null}}")
     private String hive_home = null;
 
+    @Value("${execution-engine:remote}")
+    private Shell.ExecutionEngine execution_engine = Shell.ExecutionEngine.remote;
+
     @Value("${kernel.version}")
     private String kernel_version = null;
 
@@ -101,6 +104,13 @@ public class Kernel extends Server implements KernelApi, ApplicationContextAware
      */
     public int getPort() { return port; }
 
+    /**
+     * Method to get the configured {@link Shell.ExecutionEngine}.
+     *
+     * @return  The {@link Shell.ExecutionEngine}.
+     */
+    public Shell.ExecutionEngine getExecutionEngine() { return execution_engine; }
+
     @PostConstruct
     public void init() throws Exception {
         try (var in = kernel_info_reply.getInputStream()) {
@@ -223,6 +233,7 @@ public class Kernel extends Server implements KernelApi, ApplicationContextAware
             var silent = request.content().at("/silent").asBoolean();
 
             if (! silent) {
+                recordParent(request, body);
                 pub(request.display_data(body.deepCopy()));
             }
         }
@@ -230,6 +241,23 @@ public class Kernel extends Server implements KernelApi, ApplicationContextAware
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    @Override
+    public ResponseEntity<Void> updateDisplay(JsonNode body) {
+        var request = parentOf(body);
+
+        if (request == null) {
+            request = this.request;
+        }
+
+        if (request != null) {
+            if (body.at("/transient/display_id").isTextual()) {
+                pub(request.update_display_data(body.deepCopy()));
+            }
+        }
+
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
     @Override
     public ResponseEntity<Void> print(JsonNode body) {
         var request = this.request;
@@ -238,6 +266,7 @@ public class Kernel extends Server implements KernelApi, ApplicationContextAware
             var silent = request.content().at("/silent").asBoolean();
 
             if (! silent) {
+                recordParent(request, body);
                 pub(request.execute_result(execution_count.intValue(), body.deepCopy()));
             }
         }
@@ -253,17 +282,37 @@ public class Kernel extends Server implements KernelApi, ApplicationContextAware
     }
 
     @Override
-    public ResponseEntity<List<String>> imports() {
-        var list = shell.imports().stream().collect(toList());
+    public ResponseEntity<List<String>> imports(String ifNoneMatch) {
+        var etag = etag();
+        ResponseEntity<List<String>> response = null;
 
-        return new ResponseEntity<>(list, HttpStatus.OK);
+        if (! etag.equals(ifNoneMatch)) {
+            var list = shell.imports().stream().collect(toList());
+
+            response = ResponseEntity.ok().eTag(etag).body(list);
+        } else {
+            response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return response;
     }
 
     @Override
-    public ResponseEntity<Map<String,String>> variables() {
-        return new ResponseEntity<>(shell.variables(), HttpStatus.OK);
+    public ResponseEntity<Map<String,String>> variables(String ifNoneMatch) {
+        var etag = etag();
+        ResponseEntity<Map<String,String>> response = null;
+
+        if (! etag.equals(ifNoneMatch)) {
+            response = ResponseEntity.ok().eTag(etag).body(shell.variables());
+        } else {
+            response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return response;
     }
 
+    private String etag() { return "\"" + shell.version() + "\""; }
+
     @Override
     public void run(ApplicationArguments arguments) throws Exception {
         new CommandLine(this)
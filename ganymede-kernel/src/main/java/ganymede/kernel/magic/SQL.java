@@ -23,18 +23,53 @@ import ball.annotation.ServiceProviderFor;
 import ganymede.notebook.AbstractMagic;
 import ganymede.notebook.Description;
 import ganymede.notebook.Magic;
+import ganymede.util.ConnectionPool;
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
+import org.jooq.CSVFormat;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListener;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.Select;
 import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import tech.tablesaw.api.BooleanColumn;
+import tech.tablesaw.api.DateColumn;
+import tech.tablesaw.api.DateTimeColumn;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.FloatColumn;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.LongColumn;
+import tech.tablesaw.api.ShortColumn;
+import tech.tablesaw.api.StringColumn;
+import tech.tablesaw.api.Table;
+import tech.tablesaw.api.TimeColumn;
+
+import static javax.script.ScriptContext.ENGINE_SCOPE;
 
 /**
  * {@link SQL} {@link Magic}.
@@ -64,6 +99,7 @@ public class SQL extends AbstractMagic {
 
             if (arguments.getUrl() != null) {
                 dsl = arguments.dsl();
+                arguments.configure(dsl);
             }
 
             if (! code.isBlank()) {
@@ -74,22 +110,45 @@ public class SQL extends AbstractMagic {
                 context.sql.queries.clear();
                 context.sql.results.clear();
 
-                var queries = dsl.parser().parse(code);
+                var queries = dsl.parser().parse(code).queries();
+
+                Collections.addAll(context.sql.queries, queries);
+
+                for (int i = 0; i < queries.length; i += 1) {
+                    if (arguments.getInto() != null && i == queries.length - 1) {
+                        var table = into(queries[i], arguments);
 
-                Collections.addAll(context.sql.queries, queries.queries());
+                        context.context.getBindings(ENGINE_SCOPE).put(arguments.getInto(), table);
 
-                for (var query : queries) {
-                    var result = dsl.fetch(query.getSQL());
+                        if (arguments.isPrint()) {
+                            context.print(table);
+                        }
+                    } else {
+                        var result = fetch(queries[i], arguments, arguments.output(i, queries.length));
 
-                    context.sql.results.add(result);
+                        context.sql.results.add(result);
 
-                    if (arguments.isPrint()) {
-                        context.print(result);
+                        if (arguments.isPrint()) {
+                            print(result, arguments);
+                        }
                     }
                 }
             } else {
                 if (! context.sql.isEmpty()) {
-                    context.sql.keySet().forEach(System.out::println);
+                    var pools = context.sql.pools();
+
+                    for (var key : context.sql.keySet()) {
+                        var pool = pools.get(key);
+
+                        System.out.println(key);
+
+                        if (pool != null) {
+                            pool.stats().forEach((k, v) -> System.out.format("    %s: %s\n", k, v));
+                        }
+                    }
+
+                    System.out.println("cache");
+                    context.sql.cache.stats().forEach((k, v) -> System.out.format("    %s: %s\n", k, v));
                 } else {
                     System.out.println("No JDBC connections have been established.");
                 }
@@ -100,14 +159,360 @@ public class SQL extends AbstractMagic {
             exception.getCommandLine().usage(System.err);
         } catch (DataAccessException exception) {
             System.err.println(exception.getMessage());
+        } catch (InterruptedException exception) {
+            System.err.println("Query cancelled");
         } catch (Exception exception) {
             exception.printStackTrace(System.err);
         }
     }
 
+    /*
+     * Rows are read through a lazy Cursor:  At most --max-rows (if
+     * specified) are retained (in memory) and, if an --output file is
+     * specified, all rows are streamed to it as CSV in --fetch-size
+     * chunks.  With --cache, SELECT results are cached keyed by
+     * connection, normalized SQL, bind values, and --max-rows.
+     */
+    private Result<Record> fetch(Query query, Arguments arguments, File output) throws Exception {
+        Result<Record> result = null;
+        var sql = query.getSQL();
+        var cacheable = (arguments.isCache() || arguments.isRefresh()) && output == null && (query instanceof Select);
+        var key = Arrays.asList(context.sql.keyOf(dsl), sql, query.getBindValues(), arguments.getMaxRows());
+
+        if (cacheable && (! arguments.isRefresh())) {
+            var hit = context.sql.cache.get(dsl, key);
+
+            if (hit != null) {
+                result = hit.getResult();
+
+                System.out.format("Cache hit (%ds old)\n", hit.getAge().toSeconds());
+
+                if (hit.isTruncated()) {
+                    System.out.format("Results truncated to %d rows (--max-rows)\n", result.size());
+                }
+            }
+        }
+
+        if (result == null) {
+            var fetchSize = arguments.getFetchSize();
+            var truncated = new AtomicBoolean(false);
+            var statements = ConcurrentHashMap.<Statement>newKeySet();
+            var dsl =
+                DSL.using(this.dsl.configuration()
+                          .deriveAppending(ExecuteListener.onExecuteStart(t -> statements.add(t.statement()))));
+
+            result = cancellable(statements, () -> {
+                    Result<Record> rows = null;
+                    var select = dsl.resultQuery(sql).fetchSize(fetchSize);
+
+                    if (arguments.getTimeout() != null) {
+                        select = select.queryTimeout(arguments.getTimeout());
+                    }
+
+                    try (var cursor = select.fetchLazy()) {
+                        rows = (arguments.getMaxRows() > 0) ? cursor.fetchNext(arguments.getMaxRows()) : cursor.fetch();
+
+                        if (output != null) {
+                            try (var writer = Files.newBufferedWriter(output.toPath())) {
+                                rows.formatCSV(writer, CSVFormat.DEFAULT);
+
+                                var format = CSVFormat.DEFAULT.header(false);
+
+                                while (cursor.hasNext()) {
+                                    cursor.fetchNext(Math.max(fetchSize, 1)).formatCSV(writer, format);
+                                }
+                            }
+
+                            System.out.format("Results written to %s\n", output);
+                        } else if (cursor.hasNext()) {
+                            truncated.set(true);
+
+                            System.out.format("Results truncated to %d rows (--max-rows)\n", rows.size());
+                        }
+                    }
+
+                    return rows;
+                });
+
+            if (cacheable) {
+                context.sql.cache.put(key, result, truncated.get(), Duration.ofSeconds(arguments.getCacheTtl()));
+
+                System.out.println(arguments.isRefresh() ? "Cache refreshed" : "Cache miss");
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * The Tablesaw Table is built column-by-column directly from the JDBC
+     * ResultSet (no jOOQ Records are materialized).
+     */
+    private Object into(Query query, Arguments arguments) throws Exception {
+        var statements = ConcurrentHashMap.<Statement>newKeySet();
+        var timeout = (arguments.getTimeout() != null) ? arguments.getTimeout() : dsl.settings().getQueryTimeout();
+
+        return cancellable(statements, () -> dsl.connectionResult(connection -> {
+                    Object table = null;
+
+                    try (var statement = connection.createStatement()) {
+                        statements.add(statement);
+                        statement.setFetchSize(arguments.getFetchSize());
+
+                        if (timeout != null) {
+                            statement.setQueryTimeout(timeout);
+                        }
+
+                        try (var resultSet = statement.executeQuery(query.getSQL())) {
+                            table = TableReader.read(arguments.getInto(), resultSet, arguments.getMaxRows());
+
+                            if (arguments.getMaxRows() > 0 && resultSet.next()) {
+                                System.out.format("Results truncated to %d rows (--max-rows)\n", arguments.getMaxRows());
+                            }
+                        }
+                    }
+
+                    return table;
+                }));
+    }
+
+    /*
+     * The query is executed on a separate thread so the notebook thread
+     * remains responsive to JShell.stop() (ThreadDeath) and interrupts.
+     * If the notebook thread is stopped before the query completes, any
+     * executing JDBC Statements are cancelled so the database (and the
+     * pooled connection) are released.
+     */
+    private <T> T cancellable(Set<Statement> statements, Callable<T> callable) throws Exception {
+        T value = null;
+        var task = new FutureTask<T>(callable);
+        var thread = new Thread(task, getClass().getSimpleName().toLowerCase());
+
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            value = task.get();
+        } catch (ExecutionException exception) {
+            var cause = exception.getCause();
+
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw exception;
+            }
+        } finally {
+            if (! task.isDone()) {
+                for (var statement : statements) {
+                    try {
+                        statement.cancel();
+                    } catch (Exception exception) {
+                    }
+                }
+
+                task.cancel(true);
+            }
+        }
+
+        return value;
+    }
+
+    private void print(Result<Record> result, Arguments arguments) {
+        var limit = arguments.getDisplayRows();
+
+        if (result.size() > limit) {
+            var preview = dsl.newResult(result.fields());
+
+            preview.addAll(result.subList(0, limit));
+
+            context.print(preview);
+            System.out.format("Showing %d of %d rows (--display-rows)\n", limit, result.size());
+        } else {
+            context.print(result);
+        }
+    }
+
     @Override
     public String getUsage() { return getUsage(new Arguments()); }
 
+    /*
+     * Isolated so Tablesaw is only loaded if --into is specified.
+     */
+    private static class TableReader {
+        private interface Appender {
+            public void append(ResultSet resultSet, int index) throws SQLException;
+        }
+
+        public static Table read(String name, ResultSet resultSet, int maxRows) throws SQLException {
+            var table = Table.create(name);
+            var metadata = resultSet.getMetaData();
+            var appenders = new Appender[metadata.getColumnCount()];
+
+            for (int i = 0; i < appenders.length; i += 1) {
+                var label = metadata.getColumnLabel(i + 1);
+
+                if (table.containsColumn(label)) {
+                    label += "_" + (i + 1);
+                }
+
+                appenders[i] = appender(table, label, metadata.getColumnType(i + 1),
+                                        metadata.getPrecision(i + 1), metadata.getScale(i + 1));
+            }
+
+            for (int row = 0; (maxRows <= 0 || row < maxRows) && resultSet.next(); row += 1) {
+                for (int i = 0; i < appenders.length; i += 1) {
+                    appenders[i].append(resultSet, i + 1);
+                }
+            }
+
+            return table;
+        }
+
+        private static Appender appender(Table table, String label, int type, int precision, int scale) {
+            Appender appender = null;
+
+            switch (type) {
+            case Types.BIT:
+            case Types.BOOLEAN: {
+                var column = BooleanColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getBoolean(i);
+
+                    if (r.wasNull()) { column.appendMissing(); } else { column.append(value); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.TINYINT:
+            case Types.SMALLINT: {
+                var column = ShortColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getShort(i);
+
+                    if (r.wasNull()) { column.appendMissing(); } else { column.append(value); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.INTEGER: {
+                var column = IntColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getInt(i);
+
+                    if (r.wasNull()) { column.appendMissing(); } else { column.append(value); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.BIGINT: {
+                var column = LongColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getLong(i);
+
+                    if (r.wasNull()) { column.appendMissing(); } else { column.append(value); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.REAL: {
+                var column = FloatColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getFloat(i);
+
+                    if (r.wasNull()) { column.appendMissing(); } else { column.append(value); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                if (scale == 0 && 0 < precision && precision < 10) {
+                    appender = appender(table, label, Types.INTEGER, precision, scale);
+                } else if (scale == 0 && 0 < precision && precision < 19) {
+                    appender = appender(table, label, Types.BIGINT, precision, scale);
+                } else {
+                    appender = appender(table, label, Types.DOUBLE, precision, scale);
+                }
+                break;
+
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                var column = DoubleColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getDouble(i);
+
+                    if (r.wasNull()) { column.appendMissing(); } else { column.append(value); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.DATE: {
+                var column = DateColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getDate(i);
+
+                    if (value == null) { column.appendMissing(); } else { column.append(value.toLocalDate()); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.TIME: {
+                var column = TimeColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getTime(i);
+
+                    if (value == null) { column.appendMissing(); } else { column.append(value.toLocalTime()); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            case Types.TIMESTAMP: {
+                var column = DateTimeColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getTimestamp(i);
+
+                    if (value == null) { column.appendMissing(); } else { column.append(value.toLocalDateTime()); }
+                };
+                table.addColumns(column);
+                break;
+            }
+
+            default: {
+                var column = StringColumn.create(label);
+
+                appender = (r, i) -> {
+                    var value = r.getString(i);
+
+                    if (value == null) { column.appendMissing(); } else { column.append(value); }
+                };
+                table.addColumns(column);
+                break;
+            }
+            }
+
+            return appender;
+        }
+    }
+
     @Command @Data
     private class Arguments {
         @Parameters(description = { "JDBC Connection URL" }, index = "0", arity = "0..1")
@@ -122,8 +527,92 @@ public class SQL extends AbstractMagic {
         @Option(names = { "--no-print" }, negatable = true, description = { "Print query results.  true by default" })
         private boolean print = true;
 
+        @Option(names = { "--fetch-size" }, description = { "JDBC fetch size.  0 (driver default) by default" })
+        private int fetchSize = 0;
+
+        @Option(names = { "--max-rows" }, description = { "Maximum rows retained per query.  0 (unlimited) by default" })
+        private int maxRows = 0;
+
+        @Option(names = { "--display-rows" }, description = { "Maximum rows printed per query.  100 by default" })
+        private int displayRows = 100;
+
+        @Option(names = { "--output" }, description = { "Stream all rows to CSV file" })
+        private File output = null;
+
+        @Option(names = { "--into" }, description = { "Bind (last) query results as Tablesaw Table" })
+        private String into = null;
+
+        @Option(names = { "--cache" }, description = { "Cache SELECT results.  false by default" })
+        private boolean cache = false;
+
+        @Option(names = { "--cache-ttl" }, description = { "Cached result time-to-live (seconds).  300 by default" })
+        private int cacheTtl = 300;
+
+        @Option(names = { "--refresh" }, description = { "Bypass (and replace) cached results" })
+        private boolean refresh = false;
+
+        @Option(names = { "--timeout" }, description = { "Query timeout (seconds).  Connection default by default" })
+        private Integer timeout = null;
+
+        @Option(names = { "--default-timeout" }, description = { "Connection default query timeout (seconds).  None by default" })
+        private Integer defaultTimeout = null;
+
+        @Option(names = { "--pool-size" }, description = { "Maximum pooled connections.  4 by default" })
+        private Integer poolSize = null;
+
+        @Option(names = { "--validation-query" }, description = { "Pooled connection validation query.  Connection.isValid() by default" })
+        private String validationQuery = null;
+
+        @Option(names = { "--idle-timeout" }, description = { "Pooled connection idle timeout (seconds).  600 by default" })
+        private Integer idleTimeout = null;
+
+        @Option(names = { "--leak-threshold" }, description = { "Report connections held longer (seconds).  600 by default" })
+        private Integer leakThreshold = null;
+
         public DSLContext dsl() {
             return context.sql.connect(getUrl(), getUsername(), getPassword());
         }
+
+        public void configure(DSLContext dsl) {
+            if (getDefaultTimeout() != null) {
+                dsl.settings().setQueryTimeout(getDefaultTimeout());
+            }
+
+            var provider = dsl.configuration().connectionProvider();
+
+            if (provider instanceof ConnectionPool) {
+                var pool = (ConnectionPool) provider;
+
+                if (getPoolSize() != null) {
+                    pool.setMaximumSize(getPoolSize());
+                }
+
+                if (getValidationQuery() != null) {
+                    pool.setValidationQuery(getValidationQuery());
+                }
+
+                if (getIdleTimeout() != null) {
+                    pool.setIdleTimeout(Duration.ofSeconds(getIdleTimeout()));
+                }
+
+                if (getLeakThreshold() != null) {
+                    pool.setLeakThreshold(Duration.ofSeconds(getLeakThreshold()));
+                }
+            }
+        }
+
+        public File output(int index, int count) {
+            var file = getOutput();
+
+            if (file != null && count > 1) {
+                var name = file.getName();
+                var dot = name.lastIndexOf('.');
+
+                name = (dot > 0) ? (name.substring(0, dot) + "-" + index + name.substring(dot)) : (name + "-" + index);
+                file = new File(file.getParentFile(), name);
+            }
+
+            return file;
+        }
     }
 }
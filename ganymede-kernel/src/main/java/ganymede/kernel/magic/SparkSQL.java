@@ -0,0 +1,98 @@
+package ganymede.kernel.magic;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.databind.JsonNode;
+import ball.annotation.ServiceProviderFor;
+import ganymede.kernel.renderer.SparkDatasetRenderer;
+import ganymede.notebook.AbstractMagic;
+import ganymede.notebook.Description;
+import ganymede.notebook.Magic;
+import ganymede.notebook.MagicNames;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.extern.log4j.Log4j2;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+
+import static javax.script.ScriptContext.ENGINE_SCOPE;
+
+/**
+ * {@link SparkSQL} {@link Magic}.  Executes a Spark SQL statement against
+ * the active {@link org.apache.spark.sql.SparkSession} (see
+ * {@link SparkSession}), binds the (lazy) resulting
+ * {@link org.apache.spark.sql.Dataset} into the notebook context, and
+ * renders a preview of (at most) {@code --limit} rows.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ServiceProviderFor({ Magic.class })
+@MagicNames({ "spark-sql" })
+@Description("Execute Spark SQL statement")
+@NoArgsConstructor @ToString @Log4j2
+public class SparkSQL extends AbstractMagic {
+    @Override
+    public void execute(String line0, String code, JsonNode metadata) throws Exception {
+        try {
+            var argv = Magic.getCellMagicCommand(line0);
+            var arguments = new Arguments();
+
+            parse(argv, arguments);
+
+            var statement = code.strip().replaceAll(";+$", "");
+
+            if (! statement.isBlank()) {
+                var dataset = org.apache.spark.sql.SparkSession.active().sql(statement);
+
+                context.context.getBindings(ENGINE_SCOPE).put(arguments.getInto(), dataset);
+
+                if (arguments.isPrint()) {
+                    context.print(SparkDatasetRenderer.preview(dataset, arguments.getLimit()));
+                }
+            }
+        } catch (ParameterException exception) {
+            System.err.println(exception.getMessage());
+            System.err.println();
+            exception.getCommandLine().usage(System.err);
+        } catch (NoClassDefFoundError error) {
+            System.err.format("Apache Spark not found on classpath: %s:\n", error);
+        } catch (IllegalStateException exception) {
+            System.err.println(exception.getMessage());
+        } catch (Throwable throwable) {
+            throwable.printStackTrace(System.err);
+        }
+    }
+
+    @Override
+    public String getUsage() { return getUsage(new Arguments()); }
+
+    @Command @Data
+    private class Arguments {
+        @Option(names = { "--no-print" }, negatable = true, description = { "Print preview.  true by default" })
+        private boolean print = true;
+
+        @Option(names = { "--limit" }, description = { "Maximum rows previewed.  50 by default" })
+        private int limit = SparkDatasetRenderer.VIEW;
+
+        @Option(names = { "--into" }, description = { "Name the Dataset is bound to.  \"df\" by default" })
+        private String into = "df";
+    }
+}
@@ -19,21 +19,44 @@ package ganymede.kernel.magic;
  * ##########################################################################
  */
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import ball.annotation.ServiceProviderFor;
+import ganymede.kernel.client.KernelRestClient;
 import ganymede.notebook.AbstractPropertiesMagic;
 import ganymede.notebook.Description;
 import ganymede.notebook.Magic;
 import ganymede.notebook.MagicNames;
+import ganymede.notebook.Renderer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
 import org.apache.spark.SparkConf;
+import org.apache.spark.SparkContext;
+import org.apache.spark.scheduler.SparkListener;
+import org.apache.spark.scheduler.SparkListenerApplicationEnd;
+import org.apache.spark.scheduler.SparkListenerJobEnd;
+import org.apache.spark.scheduler.SparkListenerJobStart;
+import org.apache.spark.scheduler.SparkListenerStageCompleted;
+import org.apache.spark.scheduler.SparkListenerStageSubmitted;
+import org.apache.spark.scheduler.SparkListenerTaskEnd;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.apache.spark.sql.SparkSession.builder;
 import static org.apache.spark.sql.SparkSession.getDefaultSession;
 import static org.apache.spark.sql.SparkSession.setActiveSession;
@@ -90,6 +113,10 @@ public class SparkSession extends AbstractPropertiesMagic {
 
             setActiveSession(session);
 
+            if (arguments.isProgress()) {
+                Progress.register(session.sparkContext());
+            }
+
             context.display(session);
         } catch (ParameterException exception) {
             System.err.println(exception.getMessage());
@@ -116,5 +143,247 @@ public class SparkSession extends AbstractPropertiesMagic {
         @Option(names = { "--no-enable-hive-if-available" }, negatable = true,
                 description = { "Enable Hive if available.  true by default" })
         private boolean enableHiveIfAvailable = true;
+
+        @Option(names = { "--no-progress" }, negatable = true,
+                description = { "Display job progress.  true by default" })
+        private boolean progress = true;
+    }
+
+    /**
+     * {@link SparkListener} that displays (and updates by
+     * {@code display_id}) compact job and stage progress.  The listener
+     * callbacks only record state; a timer {@link Thread} publishes every
+     * {@value #THROTTLE_MILLIS} ms so the Spark listener bus is never
+     * blocked on the kernel and long-running tasks still show elapsed
+     * time.  A job is only displayed once it has run for
+     * {@value #THROTTLE_MILLIS} ms and its output is cleared (with an empty
+     * {@code update_display_data}) when it ends.
+     */
+    private static class Progress extends SparkListener {
+        private static final long THROTTLE_MILLIS = 500;
+        private static final Set<SparkContext> REGISTERED = Collections.newSetFromMap(new WeakHashMap<>());
+
+        private final KernelRestClient client = new KernelRestClient();
+        private final Map<Integer,Job> jobs = new ConcurrentHashMap<>();
+        private final Map<Integer,Job> stages = new ConcurrentHashMap<>();
+        private final Queue<Job> ended = new ConcurrentLinkedQueue<>();
+        private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(t -> {
+                    var thread = new Thread(t, "spark-progress");
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                });
+
+        private Progress() {
+            timer.scheduleWithFixedDelay(this::publish, THROTTLE_MILLIS, THROTTLE_MILLIS, MILLISECONDS);
+        }
+
+        public static void register(SparkContext context) {
+            synchronized (REGISTERED) {
+                if (REGISTERED.add(context)) {
+                    context.addSparkListener(new Progress());
+                }
+            }
+        }
+
+        @Override
+        public void onJobStart(SparkListenerJobStart event) {
+            var job = new Job(event.jobId(), event.time());
+            var iterator = event.stageInfos().iterator();
+
+            while (iterator.hasNext()) {
+                var info = iterator.next();
+
+                job.stages.put(info.stageId(), new Stage(info.name(), info.numTasks()));
+                stages.put(info.stageId(), job);
+            }
+
+            jobs.put(job.id, job);
+        }
+
+        @Override
+        public void onStageSubmitted(SparkListenerStageSubmitted event) {
+            var job = stages.get(event.stageInfo().stageId());
+
+            if (job != null) {
+                var stage = job.stages.get(event.stageInfo().stageId());
+
+                synchronized (job) {
+                    stage.active = true;
+                    stage.total = event.stageInfo().numTasks();
+                }
+            }
+        }
+
+        @Override
+        public void onTaskEnd(SparkListenerTaskEnd event) {
+            var job = stages.get(event.stageId());
+
+            if (job != null) {
+                var stage = job.stages.get(event.stageId());
+                var metrics = event.taskMetrics();
+
+                synchronized (job) {
+                    if (event.taskInfo().successful()) {
+                        stage.done += 1;
+                    } else {
+                        stage.failed += 1;
+                    }
+
+                    if (metrics != null) {
+                        stage.read += metrics.shuffleReadMetrics().totalBytesRead();
+                        stage.written += metrics.shuffleWriteMetrics().bytesWritten();
+                        stage.spilled += metrics.diskBytesSpilled();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onStageCompleted(SparkListenerStageCompleted event) {
+            var job = stages.remove(event.stageInfo().stageId());
+
+            if (job != null) {
+                synchronized (job) {
+                    job.stages.get(event.stageInfo().stageId()).active = false;
+                }
+            }
+        }
+
+        @Override
+        public void onJobEnd(SparkListenerJobEnd event) {
+            var job = jobs.remove(event.jobId());
+
+            if (job != null) {
+                stages.values().removeIf(t -> t == job);
+                ended.add(job);
+            }
+        }
+
+        @Override
+        public void onApplicationEnd(SparkListenerApplicationEnd event) {
+            timer.shutdown();
+        }
+
+        /*
+         * Runs on the timer thread only.  A job removed from jobs is
+         * queued in ended afterwards so it is cleared on this tick (if
+         * just displayed) or the next.  Must not throw:  An exception
+         * would cancel the scheduled task.
+         */
+        private void publish() {
+            var now = System.currentTimeMillis();
+
+            for (var job : jobs.values()) {
+                String text = null;
+                var display = false;
+
+                synchronized (job) {
+                    if ((now - job.start) >= THROTTLE_MILLIS) {
+                        text = job.toString(now);
+                        display = (! job.displayed);
+                        job.displayed = true;
+                    }
+                }
+
+                if (text != null) {
+                    try {
+                        send(job, Renderer.MAP.render(text), display);
+                    } catch (Exception exception) {
+                        log.debug("{}", exception, exception);
+                    }
+                }
+            }
+
+            for (var job = ended.poll(); job != null; job = ended.poll()) {
+                if (job.displayed) {
+                    var bundle = new ObjectNode(JsonNodeFactory.instance);
+
+                    bundle.with(Renderer.DATA);
+                    bundle.with(Renderer.METADATA);
+
+                    send(job, bundle, false);
+                }
+            }
+        }
+
+        private void send(Job job, ObjectNode bundle, boolean display) {
+            try {
+                bundle.with("transient").put("display_id", "spark-job-" + job.id + "-" + job.start);
+
+                if (display) {
+                    client.display(bundle);
+                } else {
+                    client.updateDisplay(bundle);
+                }
+            } catch (Exception exception) {
+                log.debug("{}", exception, exception);
+            }
+        }
+
+        private static class Job {
+            public final int id;
+            public final long start;
+            public final Map<Integer,Stage> stages = new TreeMap<>();
+            public boolean displayed = false;
+
+            public Job(int id, long start) {
+                this.id = id;
+                this.start = start;
+            }
+
+            public String toString(long now) {
+                var buffer = new StringBuilder();
+
+                buffer.append(String.format("Job %d (%.1f s)", id, (now - start) / 1000.0));
+
+                for (var entry : stages.entrySet()) {
+                    var stage = entry.getValue();
+
+                    if (stage.active || stage.done > 0) {
+                        buffer.append(String.format("\n  Stage %d (%s): %d/%d tasks%s",
+                                                    entry.getKey(), stage.name, stage.done, stage.total,
+                                                    (stage.failed > 0) ? (" (" + stage.failed + " failed)") : ""))
+                            .append(", shuffle read ").append(bytes(stage.read))
+                            .append(", shuffle write ").append(bytes(stage.written))
+                            .append(", spill ").append(bytes(stage.spilled))
+                            .append(stage.active ? "" : " (complete)");
+                    }
+                }
+
+                return buffer.toString();
+            }
+
+            private static String bytes(long bytes) {
+                var units = "KMGTPE";
+                var value = (double) bytes;
+                var unit = -1;
+
+                while (value >= 1024 && unit < units.length() - 1) {
+                    value /= 1024;
+                    unit += 1;
+                }
+
+                return (unit < 0) ? (bytes + " B") : String.format("%.1f %siB", value, units.charAt(unit));
+            }
+        }
+
+        private static class Stage {
+            public final String name;
+            public int total;
+            public int done = 0;
+            public int failed = 0;
+            public long read = 0;
+            public long written = 0;
+            public long spilled = 0;
+            public boolean active = false;
+
+            public Stage(String name, int total) {
+                this.name = name;
+                this.total = total;
+            }
+        }
     }
 }
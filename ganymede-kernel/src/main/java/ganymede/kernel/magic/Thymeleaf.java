@@ -43,7 +43,7 @@ public class Thymeleaf extends AbstractScriptEngineMagic {
     @Override
     protected void render(Object object) {
         var engine = (ThymeleafScriptEngine) engine();
-        var mode = engine.getResolver().getTemplateMode();
+        var mode = engine.getTemplateMode();
 
         context.print(new ThymeleafRenderer.Output(mode, String.valueOf(object)));
     }
@@ -0,0 +1,389 @@
+package ganymede.kernel.renderer;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import de.erichseifert.vectorgraphics2d.VectorGraphics2D;
+import de.erichseifert.vectorgraphics2d.svg.SVGProcessor;
+import de.erichseifert.vectorgraphics2d.util.PageSize;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.Consumer;
+import java.util.function.IntToDoubleFunction;
+import javax.imageio.ImageIO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import static ganymede.notebook.Renderer.BASE64_ENCODER;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Chart {@link ganymede.notebook.Renderer} options.  Notebook-level
+ * defaults are read from the {@code ganymede.renderer.chart.*}
+ * {@link System} properties (which may be set with the
+ * {@code %%sysproperties} magic) and may be overridden for a single
+ * display by wrapping the chart with {@link #of(Object)} (for example,
+ * {@code display(options.of(chart))}).  Series with more than
+ * {@link #getDownsample()} points are {@link Downsampler downsampled}
+ * before rendering.
+ *
+ * @see JFreeChartRenderer
+ * @see XChartRenderer
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@Data
+public class ChartOptions {
+
+    /**
+     * {@link System} property to specify the default {@link Format}
+     * ({@value #FORMAT_PROPERTY}).
+     */
+    public static final String FORMAT_PROPERTY = "ganymede.renderer.chart.format";
+
+    /**
+     * {@link System} property to specify the default width
+     * ({@value #WIDTH_PROPERTY}).
+     */
+    public static final String WIDTH_PROPERTY = "ganymede.renderer.chart.width";
+
+    /**
+     * {@link System} property to specify the default height
+     * ({@value #HEIGHT_PROPERTY}).
+     */
+    public static final String HEIGHT_PROPERTY = "ganymede.renderer.chart.height";
+
+    /**
+     * {@link System} property to specify the default bitmap resolution
+     * ({@value #DPI_PROPERTY}).
+     */
+    public static final String DPI_PROPERTY = "ganymede.renderer.chart.dpi";
+
+    /**
+     * {@link System} property to disable the {@code text/html} (image
+     * map) representation ({@value #HTML_PROPERTY}).
+     */
+    public static final String HTML_PROPERTY = "ganymede.renderer.chart.html";
+
+    /**
+     * {@link System} property to specify the maximum number of points per
+     * series before downsampling (or {@code 0} to disable)
+     * ({@value #DOWNSAMPLE_PROPERTY}).
+     */
+    public static final String DOWNSAMPLE_PROPERTY = "ganymede.renderer.chart.downsample";
+
+    /**
+     * {@link System} property to specify the {@link Downsampler.Method}
+     * ({@value #DOWNSAMPLE_METHOD_PROPERTY}).
+     */
+    public static final String DOWNSAMPLE_METHOD_PROPERTY = "ganymede.renderer.chart.downsample.method";
+
+    /**
+     * Default maximum number of points per series ({@value #DOWNSAMPLE}).
+     */
+    public static final int DOWNSAMPLE = 10000;
+
+    /**
+     * Nominal (screen) resolution ({@value #SCREEN_DPI}).
+     */
+    public static final int SCREEN_DPI = 72;
+
+    private static final ThreadLocal<ChartOptions> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Output format.
+     */
+    @AllArgsConstructor(access = PRIVATE) @Getter
+    public enum Format {
+        PNG("image/png"), SVG("image/svg+xml");
+
+        private final String mimeType;
+    }
+
+    private Format format = Format.PNG;
+    private Integer width = null;
+    private Integer height = null;
+    private int dpi = SCREEN_DPI;
+    private boolean html = true;
+    private int downsample = DOWNSAMPLE;
+    private Downsampler.Method downsampleMethod = Downsampler.Method.LTTB;
+
+    /**
+     * Method to get a new {@link ChartOptions} instance initialized from
+     * the {@link System} properties.
+     *
+     * @return  The {@link ChartOptions}.
+     */
+    public static ChartOptions defaults() {
+        var options = new ChartOptions();
+        var format = System.getProperty(FORMAT_PROPERTY);
+
+        if (format != null && (! format.isBlank())) {
+            options.setFormat(Format.valueOf(format.trim().toUpperCase()));
+        }
+
+        options.setWidth(Integer.getInteger(WIDTH_PROPERTY));
+        options.setHeight(Integer.getInteger(HEIGHT_PROPERTY));
+        options.setDpi(Integer.getInteger(DPI_PROPERTY, SCREEN_DPI));
+        options.setHtml(Boolean.parseBoolean(System.getProperty(HTML_PROPERTY, "true")));
+        options.setDownsample(Integer.getInteger(DOWNSAMPLE_PROPERTY, DOWNSAMPLE));
+
+        var method = System.getProperty(DOWNSAMPLE_METHOD_PROPERTY);
+
+        if (method != null && (! method.isBlank())) {
+            options.setDownsampleMethod(Downsampler.Method.valueOf(method.trim().toUpperCase()));
+        }
+
+        return options;
+    }
+
+    /**
+     * Method to get the {@link ChartOptions} in effect for the current
+     * render.
+     *
+     * @return  The {@link ChartOptions}.
+     */
+    protected static ChartOptions current() {
+        var options = CURRENT.get();
+
+        return (options != null) ? options : defaults();
+    }
+
+    /**
+     * Method to wrap a chart for display with {@link.this}
+     * {@link ChartOptions}.
+     *
+     * @param   chart           The chart.
+     *
+     * @return  The {@link Display} to render.
+     */
+    public Display of(Object chart) { return new Display(chart, this); }
+
+    /**
+     * Method to get the effective width.
+     *
+     * @param   width           The chart's own width.
+     *
+     * @return  The configured width if specified, the argument otherwise.
+     */
+    public int getWidth(int width) {
+        return (this.width != null && this.width > 0) ? this.width : width;
+    }
+
+    /**
+     * Method to get the effective height.
+     *
+     * @param   height          The chart's own height.
+     *
+     * @return  The configured height if specified, the argument otherwise.
+     */
+    public int getHeight(int height) {
+        return (this.height != null && this.height > 0) ? this.height : height;
+    }
+
+    /**
+     * Method to select the indices of the points of a series to render.
+     * See {@link Downsampler#select(Downsampler.Method,int,IntToDoubleFunction,IntToDoubleFunction,int)}.
+     *
+     * @param   size            The number of points in the series.
+     * @param   x               The x-value of the point at an index.
+     * @param   y               The y-value of the point at an index.
+     *
+     * @return  The ordered array of selected indices or {@code null} if
+     *          the series should be rendered in full.
+     */
+    public int[] downsample(int size, IntToDoubleFunction x, IntToDoubleFunction y) {
+        return (downsample > 0) ? Downsampler.select(downsampleMethod, size, x, y, downsample) : null;
+    }
+
+    /**
+     * Method to encode a chart in the configured {@link Format}.  The
+     * encoder output is decoded (SVG) or Base64-encoded (PNG) directly
+     * into the returned {@link String}.
+     *
+     * @param   width           The (logical) width.
+     * @param   height          The (logical) height.
+     * @param   painter         The {@link Consumer} to paint the chart
+     *                          on the supplied {@link Graphics2D} in the
+     *                          (logical) {@code width} x {@code height}
+     *                          rectangle.
+     *
+     * @return  The encoded chart suitable for the {@code mime-bundle}.
+     *
+     * @throws  IOException     If the chart cannot be encoded.
+     */
+    public String encode(int width, int height, Consumer<Graphics2D> painter) throws IOException {
+        String string = null;
+
+        switch (format) {
+        case SVG:
+            var graphics = new VectorGraphics2D();
+
+            painter.accept(graphics);
+
+            var document =
+                new SVGProcessor()
+                .getDocument(graphics.getCommands(), new PageSize(0, 0, width, height));
+
+            var text = new TextOutputStream(UTF_8);
+
+            try (var out = text) {
+                document.writeTo(out);
+            }
+
+            string = text.toString();
+            break;
+
+        case PNG:
+        default:
+            var scale = ((double) Math.max(1, dpi)) / SCREEN_DPI;
+            var image =
+                new BufferedImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale),
+                                  BufferedImage.TYPE_INT_ARGB);
+            var g2d = image.createGraphics();
+
+            try {
+                g2d.scale(scale, scale);
+                painter.accept(g2d);
+            } finally {
+                g2d.dispose();
+            }
+
+            var base64 = new TextOutputStream(US_ASCII);
+
+            try (var out = BASE64_ENCODER.wrap(base64)) {
+                ImageIO.write(image, "png", out);
+            }
+
+            string = base64.toString();
+            break;
+        }
+
+        return string;
+    }
+
+    /**
+     * Method to render with {@code options} in effect for the current
+     * {@link Thread}.
+     *
+     * @param   options         The {@link ChartOptions}.
+     * @param   runnable        The {@link Runnable} to render.
+     */
+    protected static void with(ChartOptions options, Runnable runnable) {
+        var previous = CURRENT.get();
+
+        try {
+            CURRENT.set(options);
+            runnable.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Chart and {@link ChartOptions} pair.  See {@link ChartOptionsRenderer}.
+     */
+    @AllArgsConstructor(access = PRIVATE) @Getter
+    public static class Display {
+        private final Object chart;
+        private final ChartOptions options;
+    }
+
+    /**
+     * {@link OutputStream} that decodes directly into a
+     * {@link StringBuilder}.
+     */
+    private static class TextOutputStream extends OutputStream {
+        private final StringBuilder buffer = new StringBuilder();
+        private final CharsetDecoder decoder;
+        private final ByteBuffer in = ByteBuffer.allocate(8192);
+        private final CharBuffer out = CharBuffer.allocate(8192);
+        private boolean closed = false;
+
+        public TextOutputStream(Charset charset) {
+            decoder =
+                charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                var count = Math.min(length, in.remaining());
+
+                in.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+
+                decode(false);
+            }
+        }
+
+        private void decode(boolean eof) {
+            in.flip();
+
+            var overflow = true;
+
+            while (overflow) {
+                overflow = decoder.decode(in, out, eof).isOverflow();
+                drain();
+            }
+
+            in.compact();
+        }
+
+        private void drain() {
+            out.flip();
+            buffer.append(out);
+            out.clear();
+        }
+
+        @Override
+        public void close() {
+            if (! closed) {
+                closed = true;
+                decode(true);
+
+                while (decoder.flush(out).isOverflow()) {
+                    drain();
+                }
+
+                drain();
+            }
+        }
+
+        @Override
+        public String toString() { return buffer.toString(); }
+    }
+}
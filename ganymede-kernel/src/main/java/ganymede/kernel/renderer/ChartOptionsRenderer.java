@@ -0,0 +1,46 @@
+package ganymede.kernel.renderer;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import ball.annotation.ServiceProviderFor;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ganymede.notebook.AbstractRenderer;
+import ganymede.notebook.ForClass;
+import ganymede.notebook.Renderer;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * {@link ChartOptions.Display} {@link Renderer} service provider.
+ * Renders the wrapped chart with the specified {@link ChartOptions}.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ServiceProviderFor({ Renderer.class })
+@ForClass(ChartOptions.Display.class)
+@NoArgsConstructor @ToString
+public class ChartOptionsRenderer extends AbstractRenderer {
+    @Override
+    public void renderTo(ObjectNode bundle, Object object) {
+        var display = (ChartOptions.Display) object;
+
+        ChartOptions.with(display.getOptions(),
+                          () -> renderers.renderTo(bundle, display.getChart()));
+    }
+}
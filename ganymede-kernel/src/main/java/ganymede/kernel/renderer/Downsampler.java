@@ -0,0 +1,260 @@
+package ganymede.kernel.renderer;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Series downsampling shared by the chart {@link ganymede.notebook.Renderer}s.
+ * Selects a subset of a series' indices with
+ * {@link.uri https://skemman.is/handle/1946/15343 target=newtab Largest-Triangle-Three-Buckets}
+ * ({@link Method#LTTB}) or by keeping the minimum and maximum of each
+ * bucket ({@link Method#MINMAX}).  Neither method copies the source data.
+ *
+ * @see ChartOptions#getDownsample()
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@NoArgsConstructor(access = PRIVATE) @ToString
+public abstract class Downsampler {
+
+    /**
+     * Downsampling method.
+     */
+    public enum Method { LTTB, MINMAX }
+
+    /**
+     * Method to select the indices of the points to keep.
+     *
+     * @param   method          The {@link Method}.
+     * @param   size            The number of points in the series.
+     * @param   x               The x-value of the point at an index.
+     * @param   y               The y-value of the point at an index.
+     * @param   threshold       The maximum number of points to keep.
+     *
+     * @return  The ordered array of selected indices or {@code null} if
+     *          the series does not exceed {@code threshold}.
+     */
+    public static int[] select(Method method, int size,
+                               IntToDoubleFunction x, IntToDoubleFunction y, int threshold) {
+        int[] indices = null;
+
+        if (threshold > 2 && size > threshold) {
+            switch (method) {
+            case MINMAX:
+                indices = minmax(size, y, threshold);
+                break;
+
+            case LTTB:
+            default:
+                indices = lttb(size, x, y, threshold);
+                break;
+            }
+        }
+
+        return indices;
+    }
+
+    private static int[] lttb(int size, IntToDoubleFunction x, IntToDoubleFunction y, int threshold) {
+        var indices = new int[threshold];
+        var count = 0;
+        var width = ((double) (size - 2)) / (threshold - 2);
+        var a = 0;
+
+        indices[count++] = a;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket += 1) {
+            var start = (int) Math.floor(bucket * width) + 1;
+            var end = Math.min((int) Math.floor((bucket + 1) * width) + 1, size - 1);
+            var nextStart = end;
+            var nextEnd = Math.min((int) Math.floor((bucket + 2) * width) + 1, size);
+            var averageX = 0.0;
+            var averageY = 0.0;
+            var n = 0;
+
+            for (int i = nextStart; i < nextEnd; i += 1) {
+                var value = y.applyAsDouble(i);
+
+                if (Double.isFinite(value)) {
+                    averageX += x.applyAsDouble(i);
+                    averageY += value;
+                    n += 1;
+                }
+            }
+
+            if (n > 0) {
+                averageX /= n;
+                averageY /= n;
+            } else {
+                averageX = x.applyAsDouble(size - 1);
+                averageY = y.applyAsDouble(size - 1);
+            }
+
+            var ax = x.applyAsDouble(a);
+            var ay = y.applyAsDouble(a);
+            var selected = start;
+            var maximum = -1.0;
+
+            for (int i = start; i < end; i += 1) {
+                var area =
+                    Math.abs((ax - averageX) * (y.applyAsDouble(i) - ay)
+                             - (ax - x.applyAsDouble(i)) * (averageY - ay));
+
+                if (area > maximum) {
+                    maximum = area;
+                    selected = i;
+                }
+            }
+
+            indices[count++] = selected;
+            a = selected;
+        }
+
+        indices[count++] = size - 1;
+
+        return indices;
+    }
+
+    private static int[] minmax(int size, IntToDoubleFunction y, int threshold) {
+        var buckets = Math.max(1, (threshold - 2) / 2);
+        var width = ((double) (size - 2)) / buckets;
+        var indices = new int[2 * buckets + 2];
+        var count = 0;
+
+        indices[count++] = 0;
+
+        for (int bucket = 0; bucket < buckets; bucket += 1) {
+            var start = (int) Math.floor(bucket * width) + 1;
+            var end = Math.min((int) Math.floor((bucket + 1) * width) + 1, size - 1);
+            var min = start;
+            var max = start;
+
+            for (int i = start; i < end; i += 1) {
+                var value = y.applyAsDouble(i);
+
+                if (value < y.applyAsDouble(min)) {
+                    min = i;
+                }
+
+                if (value > y.applyAsDouble(max)) {
+                    max = i;
+                }
+            }
+
+            indices[count++] = Math.min(min, max);
+
+            if (min != max) {
+                indices[count++] = Math.max(min, max);
+            }
+        }
+
+        indices[count++] = size - 1;
+
+        return (count < indices.length) ? Arrays.copyOf(indices, count) : indices;
+    }
+
+    /**
+     * Method to get the selected elements of an array.
+     *
+     * @param   array           The source array.
+     * @param   indices         The selected indices.
+     *
+     * @return  The array of selected elements.
+     */
+    public static double[] subset(double[] array, int[] indices) {
+        var subset = new double[indices.length];
+
+        for (int i = 0; i < indices.length; i += 1) {
+            subset[i] = array[indices[i]];
+        }
+
+        return subset;
+    }
+
+    /**
+     * Method to get the selected elements of an array.
+     *
+     * @param   <T>             The array element type.
+     * @param   array           The source array.
+     * @param   indices         The selected indices.
+     *
+     * @return  The array of selected elements.
+     */
+    public static <T> T[] subset(T[] array, int[] indices) {
+        var subset = Arrays.copyOf(array, indices.length);
+
+        for (int i = 0; i < indices.length; i += 1) {
+            subset[i] = array[indices[i]];
+        }
+
+        return subset;
+    }
+
+    /**
+     * Method to get the {@code "Downsampled from N points"} annotation.
+     *
+     * @param   from            The total number of points in the
+     *                          downsampled series.
+     * @param   to              The total number of points kept.
+     *
+     * @return  The annotation text.
+     */
+    public static String annotation(long from, long to) {
+        return String.format("Downsampled from %,d to %,d points", from, to);
+    }
+
+    /**
+     * Method to draw an annotation in the lower left corner of a chart.
+     *
+     * @param   graphics        The {@link Graphics2D}.
+     * @param   text            The annotation text (may be {@code null}).
+     * @param   width           The chart width.
+     * @param   height          The chart height.
+     */
+    public static void annotate(Graphics2D graphics, String text, int width, int height) {
+        if (text != null) {
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.ITALIC, 10));
+            graphics.setColor(Color.GRAY);
+            graphics.drawString(text, 4, height - 4);
+        }
+    }
+
+    /**
+     * Downsampled copy of a chart (or the original chart if no series was
+     * downsampled) and its annotation.
+     *
+     * {@bean.info}
+     *
+     * @param   <T>             The chart type.
+     */
+    @Data
+    public static class Copy<T> {
+        private final T chart;
+        private final String annotation;
+    }
+}
@@ -23,14 +23,29 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClass;
 import ganymede.notebook.Renderer;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.imageio.ImageIO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static lombok.AccessLevel.PRIVATE;
+
 /**
- * Image {@link Renderer}.  See {@link ImageIO}.
+ * Image {@link Renderer}.  The image type and dimensions are determined
+ * from the PNG, JPEG, GIF, or WebP header (falling back to
+ * {@link ImageIO} for other formats) and cached by array identity.
+ * Images larger than the {@value #MAX_BYTES_PROPERTY} {@link System}
+ * property (if specified) are downscaled before they are rendered.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -38,28 +53,247 @@ import lombok.ToString;
 @ForClass(byte[].class)
 @NoArgsConstructor @ToString
 public class ImageRenderer extends AbstractRenderer {
+
+    /**
+     * {@link System} property to specify the maximum size (in bytes) of
+     * an image before it is downscaled ({@value #MAX_BYTES_PROPERTY}).
+     */
+    public static final String MAX_BYTES_PROPERTY = "ganymede.renderer.image.max-bytes";
+
+    private static final int DOWNSCALE_ATTEMPTS = 4;
+    private static final Map<byte[],Probe> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
     @Override
     public void renderTo(ObjectNode bundle, Object object) {
         var bytes = (byte[]) object;
 
-        try (var in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
-            var reader = ImageIO.getImageReaders(in).next();
+        try {
+            var probe = probe(bytes);
+
+            if (probe != null && (! bundle.with(DATA).has(probe.getMimeType()))) {
+                var max = Long.getLong(MAX_BYTES_PROPERTY, 0);
 
-            reader.setInput(in);
+                if (max > 0 && bytes.length > max) {
+                    var downscaled = downscale(bytes, probe, max);
 
-            var mimeType = reader.getOriginatingProvider().getMIMETypes()[0];
+                    if (downscaled != null) {
+                        bytes = downscaled;
+                        probe = probe(bytes);
+                    }
+                }
 
-            if (! bundle.with(DATA).has(mimeType)) {
                 bundle.with(DATA)
-                    .put(mimeType, BASE64_ENCODER.encodeToString(bytes));
+                    .put(probe.getMimeType(), BASE64_ENCODER.encodeToString(bytes));
 
-                var metadata = bundle.with(METADATA).with(mimeType);
+                var metadata = bundle.with(METADATA).with(probe.getMimeType());
 
-                metadata.put("height", reader.getHeight(0));
-                metadata.put("width", reader.getWidth(0));
+                metadata.put("height", probe.getHeight());
+                metadata.put("width", probe.getWidth());
             }
         } catch (IOException exception) {
             exception.printStackTrace(System.err);
         }
     }
+
+    /**
+     * Method to determine the MIME type and dimensions of an image.
+     *
+     * @param   bytes           The image bytes.
+     *
+     * @return  The {@link Probe} or {@code null} if the image format
+     *          cannot be determined.
+     *
+     * @throws  IOException     If the image cannot be read.
+     */
+    protected static Probe probe(byte[] bytes) throws IOException {
+        var probe = CACHE.get(bytes);
+
+        if (probe == null) {
+            probe = Header.probe(bytes);
+
+            if (probe == null) {
+                try (var in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+                    var readers = ImageIO.getImageReaders(in);
+
+                    if (readers.hasNext()) {
+                        var reader = readers.next();
+
+                        try {
+                            reader.setInput(in);
+
+                            probe =
+                                new Probe(reader.getOriginatingProvider().getMIMETypes()[0],
+                                          reader.getWidth(0), reader.getHeight(0));
+                        } finally {
+                            reader.dispose();
+                        }
+                    }
+                }
+            }
+
+            if (probe != null) {
+                CACHE.put(bytes, probe);
+            }
+        }
+
+        return probe;
+    }
+
+    /*
+     * Decode and re-encode (as JPEG if the source is a JPEG, PNG
+     * otherwise) at successively smaller scales until the result fits.
+     */
+    private static byte[] downscale(byte[] bytes, Probe probe, long max) throws IOException {
+        byte[] result = null;
+        var image = ImageIO.read(new ByteArrayInputStream(bytes));
+
+        if (image != null) {
+            var format = probe.getMimeType().equals("image/jpeg") ? "jpeg" : "png";
+            var type = format.equals("jpeg") ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+            var scale = Math.min(1.0, Math.sqrt(((double) max) / bytes.length));
+
+            for (int i = 0; i < DOWNSCALE_ATTEMPTS && (result == null || result.length > max); i += 1) {
+                var width = Math.max(1, (int) (image.getWidth() * scale));
+                var height = Math.max(1, (int) (image.getHeight() * scale));
+                var scaled = new BufferedImage(width, height, type);
+                var g2d = scaled.createGraphics();
+
+                try {
+                    g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                         RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g2d.drawImage(image, 0, 0, width, height, null);
+                } finally {
+                    g2d.dispose();
+                }
+
+                var out = new ByteArrayOutputStream(bytes.length / 2);
+
+                if (ImageIO.write(scaled, format, out)) {
+                    result = out.toByteArray();
+                }
+
+                scale *= 0.75;
+            }
+        }
+
+        return (result != null && result.length < bytes.length) ? result : null;
+    }
+
+    /**
+     * Image MIME type and dimensions.
+     */
+    @AllArgsConstructor(access = PRIVATE) @Getter @ToString
+    protected static class Probe {
+        private final String mimeType;
+        private final int width;
+        private final int height;
+    }
+
+    /**
+     * PNG, JPEG, GIF, and WebP header parsers.
+     */
+    @NoArgsConstructor(access = PRIVATE)
+    private static abstract class Header {
+        private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+        public static Probe probe(byte[] bytes) {
+            Probe probe = null;
+
+            if (startsWith(bytes, 0, PNG) && bytes.length >= 24) {
+                probe = new Probe("image/png", int32BE(bytes, 16), int32BE(bytes, 20));
+            } else if ((startsWith(bytes, 0, "GIF87a") || startsWith(bytes, 0, "GIF89a")) && bytes.length >= 10) {
+                probe = new Probe("image/gif", int16LE(bytes, 6), int16LE(bytes, 8));
+            } else if (bytes.length >= 4 && u8(bytes, 0) == 0xFF && u8(bytes, 1) == 0xD8) {
+                probe = jpeg(bytes);
+            } else if (startsWith(bytes, 0, "RIFF") && startsWith(bytes, 8, "WEBP")) {
+                probe = webp(bytes);
+            }
+
+            return probe;
+        }
+
+        private static Probe jpeg(byte[] bytes) {
+            Probe probe = null;
+            var offset = 2;
+
+            while (probe == null && offset + 9 < bytes.length) {
+                if (u8(bytes, offset) != 0xFF) {
+                    break;
+                }
+
+                var marker = u8(bytes, offset + 1);
+
+                if (marker == 0xFF) {
+                    offset += 1;
+                } else if (marker == 0xD8 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                    offset += 2;
+                } else if (marker >= 0xC0 && marker <= 0xCF
+                           && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                    probe = new Probe("image/jpeg", int16BE(bytes, offset + 7), int16BE(bytes, offset + 5));
+                } else if (marker == 0xD9 || marker == 0xDA) {
+                    break;
+                } else {
+                    offset += 2 + int16BE(bytes, offset + 2);
+                }
+            }
+
+            return probe;
+        }
+
+        private static Probe webp(byte[] bytes) {
+            Probe probe = null;
+
+            if (startsWith(bytes, 12, "VP8 ") && bytes.length >= 30) {
+                probe =
+                    new Probe("image/webp",
+                              int16LE(bytes, 26) & 0x3FFF, int16LE(bytes, 28) & 0x3FFF);
+            } else if (startsWith(bytes, 12, "VP8L") && bytes.length >= 25) {
+                var b0 = u8(bytes, 21);
+                var b1 = u8(bytes, 22);
+                var b2 = u8(bytes, 23);
+                var b3 = u8(bytes, 24);
+
+                probe =
+                    new Probe("image/webp",
+                              1 + (((b1 & 0x3F) << 8) | b0),
+                              1 + (((b3 & 0x0F) << 10) | (b2 << 2) | (b1 >> 6)));
+            } else if (startsWith(bytes, 12, "VP8X") && bytes.length >= 30) {
+                probe = new Probe("image/webp", 1 + int24LE(bytes, 24), 1 + int24LE(bytes, 27));
+            }
+
+            return probe;
+        }
+
+        private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+            return startsWith(bytes, offset, prefix.getBytes(US_ASCII));
+        }
+
+        private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+            var matches = bytes.length >= offset + prefix.length;
+
+            for (int i = 0; matches && i < prefix.length; i += 1) {
+                matches &= (bytes[offset + i] == prefix[i]);
+            }
+
+            return matches;
+        }
+
+        private static int u8(byte[] bytes, int offset) { return bytes[offset] & 0xFF; }
+
+        private static int int16BE(byte[] bytes, int offset) {
+            return (u8(bytes, offset) << 8) | u8(bytes, offset + 1);
+        }
+
+        private static int int16LE(byte[] bytes, int offset) {
+            return u8(bytes, offset) | (u8(bytes, offset + 1) << 8);
+        }
+
+        private static int int24LE(byte[] bytes, int offset) {
+            return int16LE(bytes, offset) | (u8(bytes, offset + 2) << 16);
+        }
+
+        private static int int32BE(byte[] bytes, int offset) {
+            return (int16BE(bytes, offset) << 16) | int16BE(bytes, offset + 2);
+        }
+    }
 }
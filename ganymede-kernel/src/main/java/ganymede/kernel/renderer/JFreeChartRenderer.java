@@ -23,11 +23,13 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClassName;
 import ganymede.notebook.Renderer;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.awt.geom.Rectangle2D;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
@@ -35,12 +37,18 @@ import org.jfree.chart.ChartRenderingInfo;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.entity.StandardEntityCollection;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.AbstractXYDataset;
+import org.jfree.data.xy.XYDataset;
 
 import static org.springframework.util.MimeTypeUtils.TEXT_HTML_VALUE;
 
 /**
  * {@link.uri https://github.com/jfree/jfreechart target=newtab JFreeChart}
- * {@link Renderer} service provider.
+ * {@link Renderer} service provider.  Renders PNG (with an HTML image
+ * map) or SVG as configured by {@link ChartOptions}.
  *
  * @see JFreeChart
  * @see ChartUtils
@@ -51,6 +59,9 @@ import static org.springframework.util.MimeTypeUtils.TEXT_HTML_VALUE;
 @ForClassName("org.jfree.chart.JFreeChart")
 @NoArgsConstructor @ToString
 public class JFreeChartRenderer extends AbstractRenderer {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
     @Override
     public Optional<JFreeChartRenderer> instance() {
         return Optional.ofNullable(getRenderType()).map(t -> new Impl());
@@ -71,34 +82,166 @@ public class JFreeChartRenderer extends AbstractRenderer {
         @Override
         public void renderTo(ObjectNode bundle, Object object) {
             var chart = (JFreeChart) object;
-            var width = 800;
-            var height = 600;
+            var options = ChartOptions.current();
+            var mimeType = options.getFormat().getMimeType();
+
+            if (! bundle.with(DATA).has(mimeType)) {
+                var release = new ArrayList<Runnable>();
+
+                try {
+                    var width = options.getWidth(WIDTH);
+                    var height = options.getHeight(HEIGHT);
+                    var info = new ChartRenderingInfo(new StandardEntityCollection());
+                    var area = new Rectangle2D.Double(0, 0, width, height);
+                    var copy = downsample(chart, options, release);
+                    var data =
+                        options.encode(width, height, t -> {
+                                copy.getChart().draw(t, area, info);
+                                Downsampler.annotate(t, copy.getAnnotation(), width, height);
+                            });
 
-            try (var out = new ByteArrayOutputStream()) {
-                var info = new ChartRenderingInfo(new StandardEntityCollection());
+                    bundle.with(DATA).put(mimeType, data);
 
-                ChartUtils.writeChartAsPNG(out, chart, width, height, info);
+                    var metadata = bundle.with(METADATA).with(mimeType);
 
-                var image = out.toByteArray();
+                    metadata.put("height", height);
+                    metadata.put("width", width);
 
-                renderers.renderTo(bundle, image);
+                    if (options.isHtml() && options.getFormat() == ChartOptions.Format.PNG
+                        && (! bundle.with(DATA).has(TEXT_HTML_VALUE))) {
+                        var html = new StringWriter();
+                        var name = UUID.randomUUID().toString();
 
-                if (! bundle.with(DATA).has(TEXT_HTML_VALUE)) {
-                    var html = new StringWriter();
-                    var name = UUID.randomUUID().toString();
-                    var mimeType = bundle.with(METADATA).fieldNames().next();
-                    var base64 = bundle.with(DATA).get(mimeType).asText();
+                        try (var writer = new PrintWriter(html)) {
+                            writer.format("<img usemap=\"#%s\" width=\"%d\" height=\"%d\" src=\"data:%s;base64,%s\"/>\n",
+                                          name, width, height, mimeType, data);
+                            ChartUtils.writeImageMap(writer, name, info, false);
+                        }
 
-                    try (var writer = new PrintWriter(html)) {
-                        writer.format("<img usemap=\"#%s\" src=\"data:%s;base64,%s\"/>\n", name, mimeType, base64);
-                        ChartUtils.writeImageMap(writer, name, info, false);
+                        bundle.with(DATA).put(TEXT_HTML_VALUE, html.toString());
                     }
+                } catch (Throwable throwable) {
+                    throwable.printStackTrace(System.err);
+                } finally {
+                    release.forEach(Runnable::run);
+                }
+            }
+        }
+
+        /*
+         * Line and scatter XYPlot datasets with a series larger than the
+         * downsample threshold are replaced with a view of the selected
+         * points in a clone of the chart.  XYPlot.clone() shares (and
+         * listens to) the caller's datasets so the clone's datasets are
+         * cleared (removing its listeners) once it has been drawn.  If the
+         * chart cannot be cloned it is drawn as-is.
+         */
+        private Downsampler.Copy<JFreeChart> downsample(JFreeChart chart, ChartOptions options,
+                                                        List<Runnable> release) {
+            var copy = new Downsampler.Copy<>(chart, null);
+
+            if (chart.getPlot() instanceof XYPlot) {
+                var plot = (XYPlot) chart.getPlot();
+                var datasets = new TreeMap<Integer,XYDataset>();
+                var from = 0L;
+                var to = 0L;
+
+                for (int index = 0, count = plot.getDatasetCount(); index < count; index += 1) {
+                    var dataset = plot.getDataset(index);
+
+                    if (dataset != null
+                        && plot.getRendererForDataset(dataset) instanceof XYLineAndShapeRenderer) {
+                        var indices = new int[dataset.getSeriesCount()][];
+                        var sampled = false;
+
+                        for (int series = 0; series < indices.length; series += 1) {
+                            var s = series;
+
+                            indices[s] =
+                                options.downsample(dataset.getItemCount(s),
+                                                   i -> dataset.getXValue(s, i),
+                                                   i -> dataset.getYValue(s, i));
 
-                    bundle.with(DATA).put(TEXT_HTML_VALUE, html.toString());
+                            if (indices[s] != null) {
+                                sampled = true;
+                                from += dataset.getItemCount(s);
+                                to += indices[s].length;
+                            }
+                        }
+
+                        if (sampled) {
+                            datasets.put(index, new Sampled(dataset, indices));
+                        }
+                    }
+                }
+
+                if (! datasets.isEmpty()) {
+                    try {
+                        var clone = (JFreeChart) chart.clone();
+                        var xy = (XYPlot) clone.getPlot();
+
+                        release.add(() -> {
+                                for (int index = 0, count = xy.getDatasetCount(); index < count; index += 1) {
+                                    xy.setDataset(index, null);
+                                }
+                            });
+                        datasets.forEach(xy::setDataset);
+
+                        copy = new Downsampler.Copy<>(clone, Downsampler.annotation(from, to));
+                    } catch (CloneNotSupportedException exception) {
+                        exception.printStackTrace(System.err);
+                    }
                 }
-            } catch (Throwable throwable) {
-                throwable.printStackTrace(System.err);
             }
+
+            return copy;
+        }
+    }
+
+    @ToString
+    private static class Sampled extends AbstractXYDataset {
+        private static final long serialVersionUID = 4826304409627462591L;
+
+        private final XYDataset dataset;
+        private final int[][] indices;
+
+        public Sampled(XYDataset dataset, int[][] indices) {
+            this.dataset = dataset;
+            this.indices = indices;
+        }
+
+        private int index(int series, int item) {
+            return (indices[series] != null) ? indices[series][item] : item;
+        }
+
+        @Override
+        public int getSeriesCount() { return dataset.getSeriesCount(); }
+
+        @Override
+        public Comparable<?> getSeriesKey(int series) { return dataset.getSeriesKey(series); }
+
+        @Override
+        public DomainOrder getDomainOrder() { return dataset.getDomainOrder(); }
+
+        @Override
+        public int getItemCount(int series) {
+            return (indices[series] != null) ? indices[series].length : dataset.getItemCount(series);
+        }
+
+        @Override
+        public Number getX(int series, int item) { return dataset.getX(series, index(series, item)); }
+
+        @Override
+        public double getXValue(int series, int item) {
+            return dataset.getXValue(series, index(series, item));
+        }
+
+        @Override
+        public Number getY(int series, int item) { return dataset.getY(series, index(series, item)); }
+
+        @Override
+        public double getYValue(int series, int item) {
+            return dataset.getYValue(series, index(series, item));
         }
     }
 }
@@ -23,14 +23,20 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClass;
 import ganymede.notebook.Renderer;
+import java.util.List;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.jooq.Field;
 import org.jooq.Formattable;
+import org.jooq.Record;
+import org.jooq.Result;
 
 import static org.springframework.util.MimeTypeUtils.TEXT_HTML_VALUE;
 
 /**
  * jOOQ {@link Formattable} {@link Renderer} service provider.
+ * {@link Result}s and {@link Record}s are written with
+ * {@link TableWriter}.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -41,11 +47,55 @@ public class JOOQFormattableRenderer extends AbstractRenderer {
     @Override
     public void renderTo(ObjectNode bundle, Object object) {
         var formattable = (Formattable) object;
+        TableWriter.Source source = null;
 
-        if (! bundle.with(DATA).has(TEXT_HTML_VALUE)) {
-            bundle.with(DATA).put(TEXT_HTML_VALUE, formattable.formatHTML());
+        if (formattable instanceof Result<?>) {
+            source = new ResultSource((Result<?>) formattable);
+        } else if (formattable instanceof Record) {
+            source = new ResultSource(List.of((Record) formattable), ((Record) formattable).fields());
         }
 
-        renderers.renderTo(bundle, formattable.format());
+        if (source != null) {
+            var writer = new TableWriter();
+
+            if (! bundle.with(DATA).has(TEXT_HTML_VALUE)) {
+                bundle.with(DATA).put(TEXT_HTML_VALUE, writer.html(source));
+            }
+
+            renderers.renderTo(bundle, writer.text(source));
+        } else {
+            if (! bundle.with(DATA).has(TEXT_HTML_VALUE)) {
+                bundle.with(DATA).put(TEXT_HTML_VALUE, formattable.formatHTML());
+            }
+
+            renderers.renderTo(bundle, formattable.format());
+        }
+    }
+
+    @ToString
+    private static class ResultSource implements TableWriter.Source {
+        private final List<? extends Record> records;
+        private final Field<?>[] fields;
+
+        public ResultSource(Result<?> result) { this(result, result.fields()); }
+
+        public ResultSource(List<? extends Record> records, Field<?>[] fields) {
+            this.records = records;
+            this.fields = fields;
+        }
+
+        @Override
+        public int getColumnCount() { return fields.length; }
+
+        @Override
+        public String getColumnName(int column) { return fields[column].getName(); }
+
+        @Override
+        public int getRowCount() { return records.size(); }
+
+        @Override
+        public void writeTo(TableWriter.Cell cell, int row, int column) {
+            cell.append(records.get(row).get(column));
+        }
     }
 }
@@ -20,17 +20,33 @@ package ganymede.kernel.renderer;
  */
 import ball.annotation.ServiceProviderFor;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClass;
+import ganymede.notebook.OutputBudget;
 import ganymede.notebook.Renderer;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import static org.springframework.util.MimeTypeUtils.APPLICATION_JSON_VALUE;
 
 /**
- * {@link JsonNode} {@link Renderer} service provider.
+ * {@link JsonNode} {@link Renderer} service provider.  Both the
+ * {@code application/json} and {@code text/plain} representations are
+ * rendered from a preview limited to {@value #DEPTH_PROPERTY} levels,
+ * {@value #ELEMENTS_PROPERTY} elements per container, and (approximately)
+ * {@value #BUDGET_PROPERTY} characters.  Elided content is marked with
+ * its JSON Pointer; the (most recently) truncated trees are softly
+ * retained so sub-trees may be rendered on demand with
+ * {@link #expand(String,String)}.  Limits may have a {@code k}, {@code m},
+ * or {@code g} suffix (see {@link OutputBudget}).
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -38,19 +54,228 @@ import static org.springframework.util.MimeTypeUtils.APPLICATION_JSON_VALUE;
 @ForClass(JsonNode.class)
 @NoArgsConstructor @ToString
 public class JsonNodeRenderer extends AbstractRenderer {
+
+    /**
+     * {@link System} property to specify the maximum depth
+     * ({@value #DEPTH_PROPERTY}).
+     */
+    public static final String DEPTH_PROPERTY = "ganymede.renderer.json.depth";
+
+    /**
+     * {@link System} property to specify the maximum number of elements
+     * rendered per array or object ({@value #ELEMENTS_PROPERTY}).
+     */
+    public static final String ELEMENTS_PROPERTY = "ganymede.renderer.json.elements";
+
+    /**
+     * {@link System} property to specify the (approximate) maximum number
+     * of characters rendered ({@value #BUDGET_PROPERTY}).
+     */
+    public static final String BUDGET_PROPERTY = "ganymede.renderer.json.budget";
+
+    /**
+     * Default maximum depth ({@value #DEPTH}).
+     */
+    public static final int DEPTH = 16;
+
+    /**
+     * Default maximum number of elements per container ({@value #ELEMENTS}).
+     */
+    public static final int ELEMENTS = 100;
+
+    /**
+     * Default (approximate) maximum number of characters ({@value #BUDGET}).
+     */
+    public static final int BUDGET = 64 * 1024;
+
+    private static final int STRING = 1024;
+    private static final int RETAINED = 16;
+    private static final AtomicInteger COUNT = new AtomicInteger(0);
+    private static final Map<String,SoftReference<JsonNode>> RETAINED_MAP =
+        Collections.synchronizedMap(new LinkedHashMap<String,SoftReference<JsonNode>>(RETAINED, 0.75f, true) {
+                private static final long serialVersionUID = 6064734453394632016L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String,SoftReference<JsonNode>> eldest) {
+                    return size() > RETAINED;
+                }
+            });
+
     @Override
     public void renderTo(ObjectNode bundle, Object object) {
         var node = (JsonNode) object;
+        var preview = new Preview();
+        var value = (node != null) ? preview.copy(node, "", 0) : null;
+        var id = (String) null;
+
+        if (preview.isTruncated()) {
+            id = "json-" + COUNT.incrementAndGet();
+            RETAINED_MAP.put(id, new SoftReference<>(node));
+        }
 
         if (! bundle.with(DATA).has(APPLICATION_JSON_VALUE)) {
             bundle.with(DATA)
-                .set(APPLICATION_JSON_VALUE, node);
+                .set(APPLICATION_JSON_VALUE, value);
             bundle.with(METADATA).with(APPLICATION_JSON_VALUE)
                 .put("expanded", true);
         }
 
-        if (node != null) {
-            renderers.renderTo(bundle, node.toPrettyString());
+        if (value != null) {
+            var text = value.toPrettyString();
+
+            if (id != null) {
+                text +=
+                    String.format("\nPreview truncated; render a sub-tree with %s.expand(\"%s\", \"<json-pointer>\")",
+                                  JsonNodeRenderer.class.getCanonicalName(), id);
+            }
+
+            renderers.renderTo(bundle, text);
+        }
+    }
+
+    /**
+     * Method to get a sub-tree of a previously rendered (and truncated)
+     * {@link JsonNode}.  The result is rendered (with the same limits) when
+     * it is the value of a cell or {@code display}ed.
+     *
+     * @param   id              The identifier shown in the truncated
+     *                          {@code text/plain} representation.
+     * @param   pointer         The JSON Pointer of the sub-tree (as shown
+     *                          in the elided content markers).
+     *
+     * @return  The sub-tree ({@link com.fasterxml.jackson.databind.node.MissingNode}
+     *          if the pointer does not match).
+     *
+     * @throws  IllegalArgumentException
+     *                          If the tree is no longer retained (or has
+     *                          been reclaimed).
+     */
+    public static JsonNode expand(String id, String pointer) {
+        var reference = RETAINED_MAP.get(id);
+        var node = (reference != null) ? reference.get() : null;
+
+        if (node == null) {
+            RETAINED_MAP.remove(id);
+
+            throw new IllegalArgumentException(id + " is no longer available");
+        }
+
+        return node.at(pointer);
+    }
+
+    /**
+     * Method to release all retained trees.
+     */
+    public static void clear() { RETAINED_MAP.clear(); }
+
+    private static long getLimit(String name, long value) {
+        var property = System.getProperty(name);
+
+        if (property != null && (! property.isBlank())) {
+            try {
+                value = OutputBudget.parse(property);
+            } catch (IllegalArgumentException exception) {
+                exception.printStackTrace(System.err);
+            }
+        }
+
+        return Math.max(1, value);
+    }
+
+    /**
+     * Depth-, element-, and size-limited copy of a {@link JsonNode} tree.
+     * The traversal stops descending (eliding the remainder of each
+     * container) once the budget is exhausted so the work is bounded by
+     * the limits rather than the size of the tree.
+     */
+    @ToString
+    private static class Preview {
+        private final JsonNodeFactory factory = JsonNodeFactory.instance;
+        private final long depth = getLimit(DEPTH_PROPERTY, DEPTH);
+        private final long elements = getLimit(ELEMENTS_PROPERTY, ELEMENTS);
+        private long remaining = getLimit(BUDGET_PROPERTY, BUDGET);
+        @Getter
+        private boolean truncated = false;
+
+        public JsonNode copy(JsonNode node, String path, int level) {
+            var value = node;
+
+            if (node.isContainerNode() && node.size() > 0 && level >= depth) {
+                value = elide("%s %,d %s (%s)",
+                              node.isArray() ? "[...]" : "{...}",
+                              node.size(), node.isArray() ? "elements" : "fields", at(path));
+            } else if (node.isArray()) {
+                var array = factory.arrayNode((int) Math.min(node.size(), elements));
+                var index = 0;
+
+                remaining -= 2;
+
+                while (index < node.size() && index < elements && remaining > 0) {
+                    array.add(copy(node.get(index), path + "/" + index, level + 1));
+                    remaining -= 2;
+                    index += 1;
+                }
+
+                if (index < node.size()) {
+                    array.add(elide("... %,d more elements (%s)", node.size() - index, at(path)));
+                }
+
+                value = array;
+            } else if (node.isObject()) {
+                var object = factory.objectNode();
+                var iterator = node.fields();
+                var count = 0;
+
+                remaining -= 2;
+
+                while (iterator.hasNext() && count < elements && remaining > 0) {
+                    var entry = iterator.next();
+                    var key = entry.getKey();
+
+                    remaining -= key.length() + 4;
+                    object.set(key, copy(entry.getValue(), path + "/" + escape(key), level + 1));
+                    count += 1;
+                }
+
+                if (count < node.size()) {
+                    var more = "...";
+
+                    while (node.has(more)) {
+                        more += ".";
+                    }
+
+                    object.set(more, elide("%,d more fields (%s)", node.size() - count, at(path)));
+                }
+
+                value = object;
+            } else if (node.isTextual()) {
+                var text = node.textValue();
+
+                if (text.length() > STRING) {
+                    value = elide("%s... (%,d characters %s)", text.substring(0, STRING), text.length(), at(path));
+                    remaining -= STRING + 2;
+                } else {
+                    remaining -= text.length() + 2;
+                }
+            } else {
+                remaining -= node.asText().length();
+            }
+
+            return value;
+        }
+
+        private JsonNode elide(String format, Object... argv) {
+            truncated = true;
+
+            return factory.textNode(String.format(format, argv));
+        }
+
+        private String at(String path) {
+            return path.isEmpty() ? "at root" : "at " + path;
+        }
+
+        private String escape(String key) {
+            return key.replace("~", "~0").replace("/", "~1");
         }
     }
 }
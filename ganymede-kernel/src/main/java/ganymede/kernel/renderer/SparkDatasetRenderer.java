@@ -20,17 +20,29 @@ package ganymede.kernel.renderer;
  */
 import ball.annotation.ServiceProviderFor;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import ganymede.kernel.client.KernelRestClient;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClassName;
 import ganymede.notebook.Renderer;
-import java.util.Map;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
 
 /**
- * Spark {@link Dataset} {@link Renderer} service provider.
+ * Spark {@link Dataset} {@link Renderer} service provider.  At most
+ * {@value #VIEW} + 1 rows are fetched (with a single
+ * {@link Dataset#limit(int)} and {@link Dataset#collectAsList()}) and the
+ * {@link Dataset} is never counted unless the {@value #COUNT_PROPERTY}
+ * system property is {@code true}.  In that case, the exact count is
+ * calculated asynchronously in a cancellable job group (started once the
+ * initial output has been published) and the output is updated (by
+ * {@code display_id}) when it completes.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -38,6 +50,97 @@ import org.apache.spark.sql.Dataset;
 @ForClassName("org.apache.spark.sql.Dataset")
 @NoArgsConstructor @ToString
 public class SparkDatasetRenderer extends AbstractRenderer {
+
+    /**
+     * Number of rows rendered ({@value #VIEW}).
+     */
+    public static final int VIEW = 50;
+
+    /**
+     * {@link System} property to enable the asynchronous exact count
+     * ({@value #COUNT_PROPERTY}).
+     */
+    public static final String COUNT_PROPERTY = "ganymede.renderer.spark.count";
+
+    /**
+     * Method to collect (at most) {@code view} rows of a {@link Dataset}
+     * (with the limit pushed into the plan) and render them with the
+     * {@link SparkDatasetRenderer} template.
+     *
+     * @param   dataset         The {@link Dataset}.
+     * @param   view            The maximum number of rows.
+     *
+     * @return  The {@link ThymeleafRenderer.Output} to be rendered.
+     */
+    public static ThymeleafRenderer.Output preview(Dataset<?> dataset, int view) {
+        return new Preview(dataset, view).output(null, null);
+    }
+
+    private static ThymeleafRenderer.Output process(String[] columns, List<Row> rows, boolean more, Long count, String group) {
+        var type = SparkDatasetRenderer.class;
+        var resource = type.getSimpleName() + ".html";
+        var map = new HashMap<String,Object>();
+        var writer = new TableWriter();
+        var html = new StringBuilder();
+
+        writer.setRows(Math.max(2, rows.size()));
+        writer.setIndex(true);
+        writer.writeHTML(html, new RowSource(columns, rows));
+
+        map.put("html", html.toString());
+        map.put("rows", rows);
+        map.put("more", more);
+        map.put("count", count);
+        map.put("group", group);
+
+        return ThymeleafRenderer.process(type, resource, "html", map);
+    }
+
+    @ToString
+    private static class Preview {
+        private final String[] columns;
+        private final List<Row> rows;
+        private final boolean more;
+
+        public Preview(Dataset<?> dataset, int view) {
+            var frame = dataset.toDF();
+            var rows = frame.limit(view + 1).collectAsList();
+            var more = rows.size() > view;
+
+            if (more) {
+                rows = rows.subList(0, view);
+            }
+
+            this.columns = frame.columns();
+            this.rows = rows;
+            this.more = more;
+        }
+
+        public ThymeleafRenderer.Output output(Long count, String group) {
+            return process(columns, rows, more, count, group);
+        }
+    }
+
+    @AllArgsConstructor @ToString
+    private static class RowSource implements TableWriter.Source {
+        private final String[] columns;
+        private final List<Row> rows;
+
+        @Override
+        public int getColumnCount() { return columns.length; }
+
+        @Override
+        public String getColumnName(int column) { return columns[column]; }
+
+        @Override
+        public int getRowCount() { return rows.size(); }
+
+        @Override
+        public void writeTo(TableWriter.Cell cell, int row, int column) {
+            cell.append(rows.get(row).get(column));
+        }
+    }
+
     @Override
     public Optional<SparkDatasetRenderer> instance() {
         return Optional.ofNullable(getRenderType()).map(t -> new Impl());
@@ -52,12 +155,51 @@ public class SparkDatasetRenderer extends AbstractRenderer {
     private class Impl extends SparkDatasetRenderer {
         @Override
         public void renderTo(ObjectNode bundle, Object object) {
-            var type = getClass().getEnclosingClass();
-            var resource = type.getSimpleName() + ".html";
-            var map = Map.<String,Object>of("dataset", (Dataset) object, "view", 50);
-            var output = ThymeleafRenderer.process(type, resource, "html", map);
+            var dataset = ((Dataset<?>) object).toDF();
+            var preview = new Preview(dataset, VIEW);
+            String group = null;
+
+            if (preview.more && Boolean.getBoolean(COUNT_PROPERTY)) {
+                var id = "spark-dataset-" + UUID.randomUUID();
+
+                if (renderers.onPublished(() -> count(id, dataset, preview))) {
+                    group = id;
+                    bundle.with("transient").put("display_id", id);
+                }
+            }
+
+            renderers.renderTo(bundle, preview.output(null, group));
+        }
+
+        /*
+         * Started (by RendererMap.publish()) only after the bundle with
+         * the display_id has been published so the update cannot precede
+         * the display.  Otherwise (e.g., updateDisplay() or a nested
+         * rendering) no placeholder is rendered.
+         */
+        private void count(String id, Dataset<Row> dataset, Preview preview) {
+            var thread =
+                new Thread(() -> {
+                        var context = dataset.sparkSession().sparkContext();
+
+                        try {
+                            context.setJobGroup(id, "count", true);
+
+                            var count = dataset.count();
+                            var bundle = renderers.render(preview.output(count, null));
+
+                            bundle.with("transient").put("display_id", id);
+
+                            new KernelRestClient().updateDisplay(bundle);
+                        } catch (Exception exception) {
+                            exception.printStackTrace(System.err);
+                        } finally {
+                            context.clearJobGroup();
+                        }
+                }, id);
 
-            renderers.renderTo(bundle, output);
+            thread.setDaemon(true);
+            thread.start();
         }
     }
 }
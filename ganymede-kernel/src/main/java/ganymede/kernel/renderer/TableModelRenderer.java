@@ -28,8 +28,11 @@ import javax.swing.table.TableModel;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import static org.springframework.util.MimeTypeUtils.TEXT_HTML_VALUE;
+
 /**
- * {@link TableModel} {@link Renderer} service provider.
+ * {@link TableModel} {@link Renderer} service provider.  See
+ * {@link TableWriter}.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -39,10 +42,17 @@ import lombok.ToString;
 public class TableModelRenderer extends AbstractRenderer {
     @Override
     public void renderTo(ObjectNode bundle, Object object) {
-        var resource = getClass().getSimpleName() + ".html";
-        var map = Map.<String,Object>of("model", (TableModel) object);
-        var output = ThymeleafRenderer.process(getClass(), resource, "html", map);
+        var writer = new TableWriter();
+        var source = TableWriter.of((TableModel) object);
+
+        if (! bundle.with(DATA).has(TEXT_HTML_VALUE)) {
+            var resource = getClass().getSimpleName() + ".html";
+            var map = Map.<String,Object>of("table", writer.html(source));
+            var output = ThymeleafRenderer.process(getClass(), resource, "html", map);
+
+            renderers.renderTo(bundle, output);
+        }
 
-        renderers.renderTo(bundle, output);
+        renderers.renderTo(bundle, writer.text(source));
     }
 }
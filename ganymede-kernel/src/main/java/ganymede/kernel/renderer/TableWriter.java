@@ -0,0 +1,559 @@
+package ganymede.kernel.renderer;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import javax.swing.table.TableModel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * HTML and text table writer shared by the tabular
+ * {@link ganymede.notebook.Renderer}s.  Only a head/tail window of (at
+ * most) {@link #getRows()} rows and a left/right window of (at most)
+ * {@link #getColumns()} columns are written (configurable with the
+ * {@value #ROWS_PROPERTY} and {@value #COLUMNS_PROPERTY} system
+ * properties) so the time and space are bounded regardless of the size
+ * of the {@link Source}.  Cells are written (and escaped) directly into
+ * the output {@link StringBuilder}; {@link Source}s may write primitive
+ * values through {@link Cell} without boxing.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@Getter @Setter @ToString
+public class TableWriter {
+
+    /**
+     * Default maximum number of rows written ({@value #ROWS}).
+     */
+    public static final int ROWS = 50;
+
+    /**
+     * {@link System} property to override {@link #ROWS}
+     * ({@value #ROWS_PROPERTY}).
+     */
+    public static final String ROWS_PROPERTY = "ganymede.renderer.table.rows";
+
+    /**
+     * Default maximum number of columns written ({@value #COLUMNS}).
+     */
+    public static final int COLUMNS = 40;
+
+    /**
+     * {@link System} property to override {@link #COLUMNS}
+     * ({@value #COLUMNS_PROPERTY}).
+     */
+    public static final String COLUMNS_PROPERTY = "ganymede.renderer.table.columns";
+
+    /**
+     * Default maximum text cell width ({@value #WIDTH}).
+     */
+    public static final int WIDTH = 40;
+
+    private static final String ELLIPSIS = "...";
+
+    private int rows = Math.max(2, Integer.getInteger(ROWS_PROPERTY, ROWS));
+    private int columns = Math.max(2, Integer.getInteger(COLUMNS_PROPERTY, COLUMNS));
+    private int width = WIDTH;
+    private boolean index = false;
+
+    /**
+     * Tabular data source.
+     */
+    public interface Source {
+
+        /**
+         * See {@link TableModel#getColumnCount()}.
+         *
+         * @return  The number of columns.
+         */
+        public int getColumnCount();
+
+        /**
+         * See {@link TableModel#getColumnName(int)}.
+         *
+         * @param   column          The column index.
+         *
+         * @return  The column name.
+         */
+        public String getColumnName(int column);
+
+        /**
+         * See {@link TableModel#getRowCount()}.
+         *
+         * @return  The number of rows.
+         */
+        public int getRowCount();
+
+        /**
+         * Method to write the value at {@code row} and {@code column} to
+         * {@code cell}.
+         *
+         * @param   cell            The target {@link Cell}.
+         * @param   row             The row index.
+         * @param   column          The column index.
+         */
+        public void writeTo(Cell cell, int row, int column);
+    }
+
+    /**
+     * Method to get a {@link Source} for a {@link TableModel}.
+     *
+     * @param   model           The {@link TableModel}.
+     *
+     * @return  The {@link Source}.
+     */
+    public static Source of(TableModel model) {
+        return new Source() {
+            @Override
+            public int getColumnCount() { return model.getColumnCount(); }
+
+            @Override
+            public String getColumnName(int column) { return model.getColumnName(column); }
+
+            @Override
+            public int getRowCount() { return model.getRowCount(); }
+
+            @Override
+            public void writeTo(Cell cell, int row, int column) {
+                cell.append(model.getValueAt(row, column));
+            }
+        };
+    }
+
+    /**
+     * Method to determine if the {@link Source} exceeds the configured
+     * window.
+     *
+     * @param   source          The {@link Source}.
+     *
+     * @return  {@code true} if rows or columns are elided;
+     *          {@code false} otherwise.
+     */
+    public boolean isTruncated(Source source) {
+        return source.getRowCount() > rows || source.getColumnCount() > columns;
+    }
+
+    /**
+     * Method to write the {@link Source} as an HTML {@code <table>}
+     * followed by a row and column count (if truncated).
+     *
+     * @param   source          The {@link Source}.
+     *
+     * @return  The HTML {@link String}.
+     */
+    public String html(Source source) {
+        var out = new StringBuilder();
+
+        writeHTML(out, source);
+
+        if (isTruncated(source)) {
+            out.append("<p>")
+                .append(source.getRowCount()).append(" rows &times; ")
+                .append(source.getColumnCount()).append(" columns</p>\n");
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Method to write the {@link Source} as text followed by a row and
+     * column count (if truncated).
+     *
+     * @param   source          The {@link Source}.
+     *
+     * @return  The text {@link String}.
+     */
+    public String text(Source source) {
+        var out = new StringBuilder();
+
+        writeText(out, source);
+
+        if (isTruncated(source)) {
+            out.append('\n')
+                .append(source.getRowCount()).append(" rows x ")
+                .append(source.getColumnCount()).append(" columns\n");
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Method to write the {@link Source} as an HTML {@code <table>}.
+     *
+     * @param   out             The target {@link StringBuilder}.
+     * @param   source          The {@link Source}.
+     */
+    public void writeHTML(StringBuilder out, Source source) {
+        var window = new Window(source);
+        var cell = new Cell(out, true);
+
+        out.append("<table border=\"1\" class=\"dataframe\">\n<thead>\n<tr style=\"text-align: right;\">");
+
+        if (index) {
+            out.append("<th></th>");
+        }
+
+        for (int x = 0; x < window.columns; x += 1) {
+            var column = window.column(x);
+
+            out.append("<th>");
+
+            if (column >= 0) {
+                cell.append(source.getColumnName(column));
+            } else {
+                out.append(ELLIPSIS);
+            }
+
+            out.append("</th>");
+        }
+
+        out.append("</tr>\n</thead>\n<tbody>\n");
+
+        for (int y = 0; y < window.rows; y += 1) {
+            var row = window.row(y);
+
+            out.append("<tr>");
+
+            if (index) {
+                out.append("<th>");
+
+                if (row >= 0) {
+                    out.append(row);
+                } else {
+                    out.append(ELLIPSIS);
+                }
+
+                out.append("</th>");
+            }
+
+            for (int x = 0; x < window.columns; x += 1) {
+                var column = window.column(x);
+
+                out.append("<td>");
+
+                if (row >= 0 && column >= 0) {
+                    source.writeTo(cell, row, column);
+                } else {
+                    out.append(ELLIPSIS);
+                }
+
+                out.append("</td>");
+            }
+
+            out.append("</tr>\n");
+        }
+
+        out.append("</tbody>\n</table>\n");
+    }
+
+    /**
+     * Method to write the {@link Source} as (right-aligned) text.  Each
+     * displayed cell is formatted twice (to calculate the column widths
+     * and then to write) rather than retained.
+     *
+     * @param   out             The target {@link StringBuilder}.
+     * @param   source          The {@link Source}.
+     */
+    public void writeText(StringBuilder out, Source source) {
+        var window = new Window(source);
+        var scratch = new StringBuilder();
+        var cell = new Cell(scratch, false);
+        var widths = new int[window.columns];
+        var indexWidth = 0;
+
+        if (index) {
+            indexWidth = Math.max(ELLIPSIS.length(), String.valueOf(Math.max(0, source.getRowCount() - 1)).length());
+        }
+
+        for (int x = 0; x < window.columns; x += 1) {
+            var column = window.column(x);
+
+            widths[x] = (column >= 0) ? format(cell, source, -1, column) : ELLIPSIS.length();
+
+            for (int y = 0; y < window.rows; y += 1) {
+                var row = window.row(y);
+
+                if (row >= 0 && column >= 0) {
+                    widths[x] = Math.max(widths[x], format(cell, source, row, column));
+                }
+            }
+        }
+
+        for (int y = -1; y < window.rows; y += 1) {
+            var row = (y >= 0) ? window.row(y) : -1;
+
+            if (index) {
+                scratch.setLength(0);
+
+                if (y >= 0) {
+                    if (row >= 0) {
+                        scratch.append(row);
+                    } else {
+                        scratch.append(ELLIPSIS);
+                    }
+                }
+
+                pad(out, scratch, indexWidth);
+            }
+
+            for (int x = 0; x < window.columns; x += 1) {
+                var column = window.column(x);
+
+                if (index || x > 0) {
+                    out.append("  ");
+                }
+
+                if ((y < 0 || row >= 0) && column >= 0) {
+                    format(cell, source, row, column);
+                } else {
+                    scratch.setLength(0);
+                    scratch.append(ELLIPSIS);
+                }
+
+                pad(out, scratch, widths[x]);
+            }
+
+            out.append('\n');
+        }
+    }
+
+    private int format(Cell cell, Source source, int row, int column) {
+        var buffer = cell.buffer;
+
+        buffer.setLength(0);
+
+        if (row >= 0) {
+            source.writeTo(cell, row, column);
+        } else {
+            cell.append(source.getColumnName(column));
+        }
+
+        if (buffer.length() > width) {
+            buffer.setLength(Math.max(0, width - ELLIPSIS.length()));
+            buffer.append(ELLIPSIS);
+        }
+
+        return buffer.length();
+    }
+
+    private void pad(StringBuilder out, CharSequence string, int width) {
+        for (int i = string.length(); i < width; i += 1) {
+            out.append(' ');
+        }
+
+        out.append(string);
+    }
+
+    /**
+     * Displayed row and column indices:  The head and tail rows (and left
+     * and right columns) separated by {@code -1} (elided) if the
+     * {@link Source} exceeds the configured limits.
+     */
+    private class Window {
+        private final int rowCount;
+        private final int head;
+        private final int rows;
+        private final int columnCount;
+        private final int left;
+        private final int columns;
+
+        public Window(Source source) {
+            rowCount = Math.max(0, source.getRowCount());
+            columnCount = Math.max(0, source.getColumnCount());
+
+            var maximumRows = TableWriter.this.rows;
+            var maximumColumns = TableWriter.this.columns;
+
+            head = (rowCount > maximumRows) ? (maximumRows / 2) : rowCount;
+            rows = (rowCount > maximumRows) ? (maximumRows + 1) : rowCount;
+            left = (columnCount > maximumColumns) ? (maximumColumns / 2) : columnCount;
+            columns = (columnCount > maximumColumns) ? (maximumColumns + 1) : columnCount;
+        }
+
+        public int row(int y) {
+            return (y < head) ? y : ((y == head) ? -1 : (rowCount - (rows - y)));
+        }
+
+        public int column(int x) {
+            return (x < left) ? x : ((x == left) ? -1 : (columnCount - (columns - x)));
+        }
+    }
+
+    /**
+     * Cell value sink.  Text values are escaped (HTML) or have control
+     * characters replaced (text) as they are appended; primitive values
+     * are appended without boxing.
+     */
+    public static class Cell {
+        private final StringBuilder buffer;
+        private final boolean html;
+
+        private Cell(StringBuilder buffer, boolean html) {
+            this.buffer = buffer;
+            this.html = html;
+        }
+
+        /**
+         * Method to append a {@link CharSequence}.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(CharSequence value) {
+            if (value != null) {
+                for (int i = 0, n = value.length(); i < n; i += 1) {
+                    append(value.charAt(i));
+                }
+            }
+
+            return this;
+        }
+
+        /**
+         * Method to append a {@code char}.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(char value) {
+            if (html) {
+                switch (value) {
+                case '&':
+                    buffer.append("&amp;");
+                    break;
+
+                case '<':
+                    buffer.append("&lt;");
+                    break;
+
+                case '>':
+                    buffer.append("&gt;");
+                    break;
+
+                case '"':
+                    buffer.append("&quot;");
+                    break;
+
+                default:
+                    buffer.append(value);
+                    break;
+                }
+            } else {
+                buffer.append(Character.isISOControl(value) ? ' ' : value);
+            }
+
+            return this;
+        }
+
+        /**
+         * Method to append a {@code boolean}.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(boolean value) {
+            buffer.append(value);
+
+            return this;
+        }
+
+        /**
+         * Method to append an {@code int}.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(int value) {
+            buffer.append(value);
+
+            return this;
+        }
+
+        /**
+         * Method to append a {@code long}.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(long value) {
+            buffer.append(value);
+
+            return this;
+        }
+
+        /**
+         * Method to append a {@code float}.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(float value) {
+            buffer.append(value);
+
+            return this;
+        }
+
+        /**
+         * Method to append a {@code double}.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(double value) {
+            buffer.append(value);
+
+            return this;
+        }
+
+        /**
+         * Method to append an {@link Object}.  {@code null} is written as
+         * an empty cell.
+         *
+         * @param   value           The value.
+         *
+         * @return  {@link.this}
+         */
+        public Cell append(Object value) {
+            if (value instanceof CharSequence) {
+                append((CharSequence) value);
+            } else if (value instanceof Integer || value instanceof Long
+                       || value instanceof Short || value instanceof Byte) {
+                append(((Number) value).longValue());
+            } else if (value instanceof Double) {
+                append(((Double) value).doubleValue());
+            } else if (value instanceof Float) {
+                append(((Float) value).floatValue());
+            } else if (value instanceof Boolean) {
+                append(((Boolean) value).booleanValue());
+            } else if (value != null) {
+                append(String.valueOf(value));
+            }
+
+            return this;
+        }
+    }
+}
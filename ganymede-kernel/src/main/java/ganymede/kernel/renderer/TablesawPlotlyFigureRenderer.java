@@ -23,16 +23,27 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.notebook.ForClassName;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.Renderer;
-import java.util.Map;
+import java.util.HashMap;
 import java.util.Optional;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import tech.tablesaw.api.StringColumn;
 import tech.tablesaw.plotly.components.Figure;
+import tech.tablesaw.plotly.components.HoverLabel;
+import tech.tablesaw.plotly.components.Line;
+import tech.tablesaw.plotly.components.Marker;
+import tech.tablesaw.plotly.components.change.Decreasing;
+import tech.tablesaw.plotly.components.change.Increasing;
+import tech.tablesaw.plotly.traces.AbstractTrace;
+import tech.tablesaw.plotly.traces.ScatterTrace;
 
 /**
  * {@link.uri https://github.com/jtablesaw/tablesaw target=newtab Tablesaw}
  * {@link.uri https://github.com/plotly target=newtab Plot.ly}
- * {@link Figure} {@link Renderer} service provider.
+ * {@link Figure} {@link Renderer} service provider.  {@link ScatterTrace}s
+ * with more points than {@link ChartOptions#getDownsample()} are
+ * {@link Downsampler downsampled} (in a copy of the {@link Figure}) before
+ * serialization.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -54,12 +65,142 @@ public class TablesawPlotlyFigureRenderer extends AbstractRenderer {
     private class Impl extends TablesawPlotlyFigureRenderer {
         @Override
         public void renderTo(ObjectNode bundle, Object object) {
+            var figure = (Figure) object;
             var type = getClass().getEnclosingClass();
             var resource = type.getSimpleName() + ".html";
-            var map = Map.<String,Object>of("figure", (Figure) object);
+            var map = new HashMap<String,Object>();
+            var copy = downsample(figure, ChartOptions.current());
+
+            map.put("figure", copy.getChart());
+            map.put("annotation", copy.getAnnotation());
+
             var output = ThymeleafRenderer.process(type, resource, "html", map);
 
             renderers.renderTo(bundle, output);
         }
+
+        /*
+         * ScatterTrace x, y, and text arrays larger than the downsample
+         * threshold are replaced with the selected points in new traces
+         * (in a copy of the Figure) created with ScatterTrace.builder().
+         * ScatterTrace has no public accessors for most of its
+         * properties so the builder options are read from the named
+         * fields; a trace is rendered as-is if they cannot be read (or
+         * if it has properties the builder cannot carry, e.g., OHLC
+         * data or ids).
+         */
+        private Downsampler.Copy<Figure> downsample(Figure figure, ChartOptions options) {
+            var copy = new Downsampler.Copy<>(figure, null);
+            var traces = figure.getTraces().clone();
+            var from = 0L;
+            var to = 0L;
+
+            for (int index = 0; index < traces.length; index += 1) {
+                var trace = traces[index];
+
+                if (trace instanceof ScatterTrace) {
+                    try {
+                        var x = (Object[]) get(trace, ScatterTrace.class, "x");
+                        var y = (Object[]) get(trace, ScatterTrace.class, "y");
+                        var text = (String[]) get(trace, ScatterTrace.class, "text");
+
+                        if (x != null && y != null && x.length == y.length
+                            && (text == null || text.length == x.length)
+                            && get(trace, ScatterTrace.class, "open") == null
+                            && get(trace, AbstractTrace.class, "ids") == null) {
+                            var indices =
+                                options.downsample(x.length,
+                                                   i -> asDouble(x[i], i), i -> asDouble(y[i], Double.NaN));
+
+                            if (indices != null) {
+                                var value =
+                                    build((ScatterTrace) trace,
+                                          Downsampler.subset(x, indices), Downsampler.subset(y, indices),
+                                          (text != null) ? Downsampler.subset(text, indices) : null);
+
+                                traces[index] = value;
+
+                                from += x.length;
+                                to += indices.length;
+                            }
+                        }
+                    } catch (Exception exception) {
+                        exception.printStackTrace(System.err);
+                    }
+                }
+            }
+
+            if (from > 0) {
+                var builder = Figure.builder().layout(figure.getLayout()).config(figure.getConfig()).addTraces(traces);
+
+                if (figure.getEventHandlers() != null) {
+                    builder.addEventHandlers(figure.getEventHandlers());
+                }
+
+                copy = new Downsampler.Copy<>(builder.build(), Downsampler.annotation(from, to));
+            }
+
+            return copy;
+        }
+
+        /*
+         * The trace serializes every x and y value as String.valueOf(...)
+         * so StringColumns reproduce the original values exactly.
+         */
+        private ScatterTrace build(ScatterTrace trace, Object[] x, Object[] y, String[] text) throws Exception {
+            var builder = ScatterTrace.builder(column("x", x), column("y", y));
+
+            builder.type((String) get(trace, AbstractTrace.class, "type"))
+                .mode((ScatterTrace.Mode) get(trace, ScatterTrace.class, "mode"))
+                .marker((Marker) get(trace, ScatterTrace.class, "marker"))
+                .line((Line) get(trace, ScatterTrace.class, "line"))
+                .fill((ScatterTrace.Fill) get(trace, ScatterTrace.class, "fill"))
+                .fillColor((String) get(trace, ScatterTrace.class, "fillColor"))
+                .whiskerWidth((Double) get(trace, ScatterTrace.class, "whiskerWidth"))
+                .increasing((Increasing) get(trace, ScatterTrace.class, "increasing"))
+                .decreasing((Decreasing) get(trace, ScatterTrace.class, "decreasing"))
+                .yAxis((ScatterTrace.YAxis) get(trace, ScatterTrace.class, "yAxis"))
+                .hoverLabel((HoverLabel) get(trace, ScatterTrace.class, "hoverLabel"))
+                .name(trace.name())
+                .opacity((Double) get(trace, AbstractTrace.class, "opacity"))
+                .legendGroup((String) get(trace, AbstractTrace.class, "legendGroup"))
+                .visible((AbstractTrace.Visibility) get(trace, AbstractTrace.class, "visible"))
+                .xAxis((String) get(trace, AbstractTrace.class, "xAxis"))
+                .yAxis((String) get(trace, AbstractTrace.class, "yAxis"));
+
+            var showLegend = (Boolean) get(trace, AbstractTrace.class, "showLegend");
+
+            if (showLegend != null) {
+                builder.showLegend(showLegend);
+            }
+
+            if (text != null) {
+                builder.text(text);
+            }
+
+            return builder.build();
+        }
+
+        private StringColumn column(String name, Object[] values) {
+            var strings = new String[values.length];
+
+            for (int i = 0; i < strings.length; i += 1) {
+                strings[i] = String.valueOf(values[i]);
+            }
+
+            return StringColumn.create(name, strings);
+        }
+
+        private double asDouble(Object value, double fallback) {
+            return (value instanceof Number) ? ((Number) value).doubleValue() : fallback;
+        }
+
+        private Object get(Object trace, Class<?> type, String name) throws Exception {
+            var field = type.getDeclaredField(name);
+
+            field.setAccessible(true);
+
+            return field.get(trace);
+        }
     }
 }
@@ -23,21 +23,27 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClassName;
 import ganymede.notebook.Renderer;
-/* import ganymede.util.ObjectMappers; */
-import java.io.ByteArrayOutputStream;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.FloatColumn;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.LongColumn;
+import tech.tablesaw.api.ShortColumn;
 import tech.tablesaw.api.Table;
-import tech.tablesaw.io.string.DataFramePrinter;
 
-import static org.springframework.util.MimeTypeUtils.APPLICATION_JSON_VALUE;
 import static org.springframework.util.MimeTypeUtils.TEXT_HTML_VALUE;
-import static tech.tablesaw.api.Table.defaultWriterRegistry;
 
 /**
  * {@link.uri https://github.com/jtablesaw/tablesaw target=newtab Tablesaw}
- * {@link Table} {@link Renderer} service provider.
+ * {@link Table} {@link Renderer} service provider.  Only a head/tail
+ * window of (at most) {@value #VIEW} rows (configurable with the
+ * {@value #VIEW_PROPERTY} system property) is rendered.  The output is
+ * assigned a {@code display_id} so further rows may be paged in with
+ * {@link ganymede.notebook.NotebookContext#updateDisplay(String,Object)}.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -45,6 +51,18 @@ import static tech.tablesaw.api.Table.defaultWriterRegistry;
 @ForClassName("tech.tablesaw.api.Table")
 @NoArgsConstructor @ToString
 public class TablesawTableRenderer extends AbstractRenderer {
+
+    /**
+     * Default number of rows rendered ({@value #VIEW}).
+     */
+    public static final int VIEW = 20;
+
+    /**
+     * {@link System} property to override {@link #VIEW}
+     * ({@value #VIEW_PROPERTY}).
+     */
+    public static final String VIEW_PROPERTY = "ganymede.renderer.tablesaw.view";
+
     @Override
     public Optional<TablesawTableRenderer> instance() {
         return Optional.ofNullable(getRenderType()).map(t -> new Impl());
@@ -60,52 +78,85 @@ public class TablesawTableRenderer extends AbstractRenderer {
         @Override
         public void renderTo(ObjectNode bundle, Object object) {
             var table = (Table) object;
-/*
-            if (! bundle.with(DATA).has(APPLICATION_JSON_VALUE)) {
-                try {
-                    if (hasWriterForExtension("json")) {
-                        var string = table.write().toString("json");
-                        var node = ObjectMappers.JSON.readTree(string);
-
-                        bundle.with(DATA)
-                            .set(APPLICATION_JSON_VALUE, node);
-                        bundle.with(METADATA)
-                            .with(APPLICATION_JSON_VALUE)
-                            .put("expanded", true);
-                    }
-                } catch (Exception exception) {
-                    exception.printStackTrace(System.err);
-                }
-            }
-*/
+            var view = Math.max(2, Integer.getInteger(VIEW_PROPERTY, VIEW));
+            var rows = table.rowCount();
+            var writer = new TableWriter();
+            var source = new TableSource(table);
+
+            writer.setRows(view);
+            writer.setIndex(true);
+
             if (! bundle.with(DATA).has(TEXT_HTML_VALUE)) {
                 try {
-                    if (hasWriterForExtension("html")) {
-                        bundle.with(DATA)
-                            .put(TEXT_HTML_VALUE, table.write().toString("html"));
+                    var id = "tablesaw-" + UUID.randomUUID();
+                    var html = new StringBuilder();
+
+                    writer.writeHTML(html, source);
+
+                    var map =
+                        Map.<String,Object>of("table", table,
+                                              "html", html.toString(),
+                                              "more", rows > view,
+                                              "id", id);
+                    var type = getClass().getEnclosingClass();
+                    var output = ThymeleafRenderer.process(type, type.getSimpleName() + ".html", "html", map);
+
+                    renderers.renderTo(bundle, output);
+
+                    bundle.with(METADATA).with(TEXT_HTML_VALUE)
+                        .put("rows", rows)
+                        .put("columns", table.columnCount());
+
+                    if (rows > view) {
+                        bundle.with("transient").put("display_id", id);
                     }
                 } catch (Exception exception) {
                     exception.printStackTrace(System.err);
                 }
             }
 
-            if (table != null) {
-                var string = "";
+            renderers.renderTo(bundle, writer.text(source));
+        }
+    }
 
-                try (var out = new ByteArrayOutputStream()) {
-                    new DataFramePrinter(Integer.MAX_VALUE, out).print(table);
+    /*
+     * Numeric and boolean cells are written from the primitive column
+     * accessors; everything else with the column's formatted String.
+     */
+    @ToString
+    private static class TableSource implements TableWriter.Source {
+        private final Table table;
 
-                    string = new String(out.toByteArray());
-                } catch (Exception exception) {
-                    exception.printStackTrace(System.err);
-                }
+        public TableSource(Table table) { this.table = table; }
 
-                renderers.renderTo(bundle, string);
-            }
-        }
+        @Override
+        public int getColumnCount() { return table.columnCount(); }
 
-        private boolean hasWriterForExtension(String extension) {
-            return defaultWriterRegistry.getWriterForExtension(extension) != null;
+        @Override
+        public String getColumnName(int column) { return table.column(column).name(); }
+
+        @Override
+        public int getRowCount() { return table.rowCount(); }
+
+        @Override
+        public void writeTo(TableWriter.Cell cell, int row, int column) {
+            var value = table.column(column);
+
+            if (! value.isMissing(row)) {
+                if (value instanceof IntColumn) {
+                    cell.append(((IntColumn) value).getInt(row));
+                } else if (value instanceof LongColumn) {
+                    cell.append(((LongColumn) value).getLong(row));
+                } else if (value instanceof ShortColumn) {
+                    cell.append(((ShortColumn) value).getShort(row));
+                } else if (value instanceof DoubleColumn) {
+                    cell.append(((DoubleColumn) value).getDouble(row));
+                } else if (value instanceof FloatColumn) {
+                    cell.append(((FloatColumn) value).getFloat(row));
+                } else {
+                    cell.append(value.getString(row));
+                }
+            }
         }
     }
 }
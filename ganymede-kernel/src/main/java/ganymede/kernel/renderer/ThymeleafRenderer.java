@@ -20,20 +20,22 @@ package ganymede.kernel.renderer;
  */
 import ball.annotation.ServiceProviderFor;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import ganymede.jsr223.ThymeleafScriptEngine;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClass;
 import ganymede.notebook.Renderer;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.util.StreamUtils;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.TemplateSpec;
 import org.thymeleaf.context.Context;
-import org.thymeleaf.extras.java8time.dialect.Java8TimeDialect;
 import org.thymeleaf.templatemode.TemplateMode;
-import org.thymeleaf.templateresolver.StringTemplateResolver;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.util.MimeTypeUtils.TEXT_HTML_VALUE;
@@ -41,11 +43,14 @@ import static org.springframework.util.MimeTypeUtils.TEXT_PLAIN_VALUE;
 import static org.springframework.util.MimeTypeUtils.TEXT_XML_VALUE;
 
 /**
- * Thymeleaf template {@link Renderer}.
+ * Thymeleaf template {@link Renderer}.  Templates are processed by the
+ * shared {@link ThymeleafScriptEngine#getTemplateEngine(TemplateMode)}
+ * {@link TemplateEngine} for the {@link TemplateMode} and resource templates
+ * are read (and parsed) once so {@link #process(String,String,Map)} and
+ * {@link #process(Class,String,String,Map)} may be called concurrently.
  *
+ * @see ThymeleafScriptEngine
  * @see TemplateEngine
- * @see StringTemplateResolver
- * @see Java8TimeDialect
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -53,16 +58,7 @@ import static org.springframework.util.MimeTypeUtils.TEXT_XML_VALUE;
 @ForClass(ThymeleafRenderer.Output.class)
 @NoArgsConstructor @ToString
 public class ThymeleafRenderer extends AbstractRenderer {
-    private static final StringTemplateResolver RESOLVER;
-    private static final TemplateEngine ENGINE;
-
-    static {
-        RESOLVER = new StringTemplateResolver();
-
-        ENGINE = new TemplateEngine();
-        ENGINE.setTemplateResolver(RESOLVER);
-        ENGINE.addDialect(new Java8TimeDialect());
-    }
+    private static final Map<List<Object>,TemplateSpec> RESOURCES = new ConcurrentHashMap<>();
 
     /**
      * Method to evaluate a template from a {@link String}.
@@ -74,9 +70,9 @@ public class ThymeleafRenderer extends AbstractRenderer {
      * @return  The {@link Output} to be renderered.
      */
     public static Output process(String template, String mode, Map<String,Object> map) {
-        RESOLVER.setTemplateMode(mode);
+        var templateMode = TemplateMode.parse(mode);
 
-        return new Output(RESOLVER.getTemplateMode(), ENGINE.process(template, new Context(null, map)));
+        return process(new TemplateSpec(template, templateMode), map);
     }
 
     /**
@@ -91,7 +87,19 @@ public class ThymeleafRenderer extends AbstractRenderer {
      * @return  The {@link Output} to be renderered.
      */
     public static Output process(Class<?> type, String name, String mode, Map<String,Object> map) {
-        return process(getResourceAsString(type, name), mode, map);
+        var templateMode = TemplateMode.parse(mode);
+        var spec =
+            RESOURCES.computeIfAbsent(List.of(type, name, templateMode),
+                                      k -> new TemplateSpec(getResourceAsString(type, name), templateMode));
+
+        return process(spec, map);
+    }
+
+    private static Output process(TemplateSpec spec, Map<String,Object> map) {
+        var mode = spec.getTemplateMode();
+        var engine = ThymeleafScriptEngine.getTemplateEngine(mode);
+
+        return new Output(mode, engine.process(spec, new Context(null, map)));
     }
 
     @Override
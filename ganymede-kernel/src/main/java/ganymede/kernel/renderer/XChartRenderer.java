@@ -23,19 +23,28 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.notebook.AbstractRenderer;
 import ganymede.notebook.ForClassName;
 import ganymede.notebook.Renderer;
-import java.io.IOException;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
-import org.knowm.xchart.BitmapEncoder;
+import org.knowm.xchart.XYChart;
+import org.knowm.xchart.XYSeries;
 import org.knowm.xchart.internal.chartpart.Chart;
+import org.knowm.xchart.style.Styler;
 
-import static org.knowm.xchart.BitmapEncoder.BitmapFormat.PNG;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 
 /**
  * {@link.uri https://github.com/knowm/XChart target=newtab XChart}
- * {@link Chart} {@link Renderer} service provider.  See
- * {@link BitmapEncoder}.
+ * {@link Chart} {@link Renderer} service provider.  Renders PNG or SVG as
+ * configured by {@link ChartOptions}.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
@@ -43,6 +52,14 @@ import static org.knowm.xchart.BitmapEncoder.BitmapFormat.PNG;
 @ForClassName("org.knowm.xchart.internal.chartpart.Chart")
 @NoArgsConstructor @ToString
 public class XChartRenderer extends AbstractRenderer {
+    /*
+     * Styler properties that are not copied:  The Theme is specified when
+     * the copy is created and the setter resets every other property, and
+     * PlotGridLinesVisible sets both the horizontal and vertical grid
+     * line properties (which are copied individually).
+     */
+    private static final Set<String> UNCOPIED = Set.of("Theme", "PlotGridLinesVisible");
+
     @Override
     public Optional<XChartRenderer> instance() {
         return Optional.ofNullable(getRenderType()).map(t -> new Impl());
@@ -57,12 +74,199 @@ public class XChartRenderer extends AbstractRenderer {
     private class Impl extends XChartRenderer {
         @Override
         public void renderTo(ObjectNode bundle, Object object) {
+            var chart = (Chart<?,?>) object;
+            var options = ChartOptions.current();
+            var mimeType = options.getFormat().getMimeType();
+
+            if (! bundle.with(DATA).has(mimeType)) {
+                try {
+                    var width = options.getWidth(chart.getWidth());
+                    var height = options.getHeight(chart.getHeight());
+                    var copy = downsample(chart, options, width, height);
+                    var data =
+                        options.encode(width, height, t -> {
+                                paint(copy.getChart(), t, width, height);
+                                Downsampler.annotate(t, copy.getAnnotation(), width, height);
+                            });
+
+                    bundle.with(DATA).put(mimeType, data);
+
+                    var metadata = bundle.with(METADATA).with(mimeType);
+
+                    metadata.put("height", height);
+                    metadata.put("width", width);
+                } catch (Throwable throwable) {
+                    throwable.printStackTrace(System.err);
+                }
+            }
+        }
+
+        /*
+         * XYChart series larger than the downsample threshold are replaced
+         * with the selected points in a copy of the chart.  XChart charts
+         * are not Cloneable so the copy is a new XYChart (with the same
+         * Theme) configured through the public API:  The styler's public
+         * setter/getter pairs are copied and each series is re-created
+         * with its public properties.  Annotations are bound to their
+         * chart so an annotated chart is drawn as-is, as is the original
+         * if the copy cannot be made.
+         */
+        private Downsampler.Copy<Chart<?,?>> downsample(Chart<?,?> chart, ChartOptions options,
+                                                        int width, int height) {
+            var copy = new Downsampler.Copy<Chart<?,?>>(chart, null);
+
+            if (chart instanceof XYChart) {
+                var indices = new LinkedHashMap<String,int[]>();
+                var from = 0L;
+                var to = 0L;
+
+                for (var series : ((XYChart) chart).getSeriesMap().values()) {
+                    if (series.isAllXData()) {
+                        var x = series.getXData();
+                        var y = series.getYData();
+                        var selected = options.downsample(x.length, i -> x[i], i -> y[i]);
+
+                        if (selected != null) {
+                            indices.put(series.getName(), selected);
+
+                            from += x.length;
+                            to += selected.length;
+                        }
+                    }
+                }
+
+                if (! indices.isEmpty()) {
+                    try {
+                        if (((List<?>) get(chart, Chart.class, "annotations")).isEmpty()) {
+                            var value = copy((XYChart) chart, indices, width, height);
+
+                            copy = new Downsampler.Copy<>(value, Downsampler.annotation(from, to));
+                        }
+                    } catch (Exception exception) {
+                        exception.printStackTrace(System.err);
+                    }
+                }
+            }
+
+            return copy;
+        }
+
+        private XYChart copy(XYChart chart, Map<String,int[]> indices, int width, int height) throws Exception {
+            var copy = new XYChart(width, height, chart.getStyler().getTheme());
+
+            copy(Styler.class, chart.getStyler(), copy.getStyler());
+            copy.setTitle(chart.getTitle());
+            copy.setXAxisTitle(chart.getXAxisTitle());
+            copy.setYAxisTitle(chart.getYAxisTitle());
+
+            for (var series : chart.getSeriesMap().values()) {
+                var name = series.getName();
+                var x = series.getXData();
+                var y = series.getYData();
+                var extra = series.getExtraValues();
+                var selected = indices.get(name);
+
+                if (selected != null) {
+                    x = Downsampler.subset(x, selected);
+                    y = Downsampler.subset(y, selected);
+                    extra = (extra != null) ? Downsampler.subset(extra, selected) : null;
+                }
+
+                var value = new XYSeries(name, x, y, extra, series.getxAxisDataType());
+
+                value.setXYSeriesRenderStyle(series.getXYSeriesRenderStyle());
+                value.setSmooth(series.isSmooth());
+                value.setMarker(series.getMarker());
+                value.setMarkerColor(series.getMarkerColor());
+                value.setLineStyle(series.getLineStyle());
+                value.setLineColor(series.getLineColor());
+                value.setLineWidth(series.getLineWidth());
+                value.setFillColor(series.getFillColor());
+                value.setLabel(series.getLabel());
+                value.setShowInLegend(series.isShowInLegend());
+                value.setEnabled(series.isEnabled());
+                value.setYAxisGroup(series.getYAxisGroup());
+                value.setYAxisDecimalPattern(series.getYAxisDecimalPattern());
+
+                var group = series.getYAxisGroup();
+
+                copy.getSeriesMap().put(name, value);
+                copy.setYAxisGroupTitle(group, chart.getYAxisGroupTitle(group));
+            }
+
+            return copy;
+        }
+
+        /*
+         * Copies each property with a public setter and a public getter
+         * (of the same type) declared by the argument type (or one of its
+         * subclasses) except those in UNCOPIED.
+         */
+        private <T> void copy(Class<T> type, T from, T to) throws Exception {
+            for (var setter : from.getClass().getMethods()) {
+                var name = setter.getName();
+
+                if (name.startsWith("set") && setter.getParameterCount() == 1
+                    && type.isAssignableFrom(setter.getDeclaringClass())
+                    && (! Modifier.isStatic(setter.getModifiers()))
+                    && (! UNCOPIED.contains(name.substring(3)))) {
+                    var getter = getter(from.getClass(), name.substring(3), setter.getParameterTypes()[0]);
+
+                    if (getter != null) {
+                        setter.invoke(to, getter.invoke(from));
+                    }
+                }
+            }
+        }
+
+        private Method getter(Class<?> type, String property, Class<?> returnType) {
+            for (var prefix : new String[] { "get", "is" }) {
+                try {
+                    var method = type.getMethod(prefix + property);
+
+                    if (method.getReturnType().equals(returnType)) {
+                        return method;
+                    }
+                } catch (NoSuchMethodException exception) {
+                }
+            }
+
+            return null;
+        }
+
+        private Object get(Object object, Class<?> type, String name) throws Exception {
+            var field = type.getDeclaredField(name);
+
+            field.setAccessible(true);
+
+            return field.get(object);
+        }
+
+        /*
+         * Chart.paint(Graphics2D,int,int) resets the chart's dimensions
+         * (and Chart.setWidth(int) and Chart.setHeight(int) are not
+         * public) so the originals are restored by painting again at the
+         * original size to a (clipped) scratch image.
+         */
+        private void paint(Chart<?,?> chart, Graphics2D graphics, int width, int height) {
+            var originalWidth = chart.getWidth();
+            var originalHeight = chart.getHeight();
+
             try {
-                var bytes = BitmapEncoder.getBitmapBytes((Chart) object, PNG);
+                chart.paint(graphics, width, height);
+            } finally {
+                if (width != originalWidth || height != originalHeight) {
+                    var scratch = new BufferedImage(1, 1, TYPE_INT_ARGB).createGraphics();
 
-                renderers.renderTo(bundle, bytes);
-            } catch (IOException exception) {
-                exception.printStackTrace(System.err);
+                    try {
+                        scratch.clipRect(0, 0, 1, 1);
+                        chart.paint(scratch, originalWidth, originalHeight);
+                    } catch (Exception exception) {
+                        exception.printStackTrace(System.err);
+                    } finally {
+                        scratch.dispose();
+                    }
+                }
             }
         }
     }
@@ -308,6 +308,19 @@ public class Message {
         return display_data(mime_bundle(stdout));
     }
 
+    /**
+     * See
+     * {@link.uri https://jupyter-client.readthedocs.io/en/latest/messaging.html#update-display-data update_display_data}.
+     */
+    public Message update_display_data(ObjectNode content) {
+        var message = new Pub(getCallingMethodName(1), this);
+
+        message.content().setAll(content);
+        message.content().with("transient");
+
+        return message;
+    }
+
     /**
      * Parameter to {@link Message#status(Message.status)} and
      * {@link Message#status(Message.status,Message)}.
@@ -18,6 +18,7 @@ package ganymede.server;
  * limitations under the License.
  * ##########################################################################
  */
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.io.PrintStreamBuffer;
 import ganymede.jupyter.NotebookServicesClient;
@@ -27,10 +28,14 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
@@ -71,7 +76,9 @@ public abstract class Server extends ScheduledThreadPoolExecutor {
     @Getter(NONE) @Setter(NONE)
     protected final AtomicInteger execution_count = new AtomicInteger(0);
     @Getter(NONE) @Setter(NONE)
-    protected transient Message request = null;
+    protected transient volatile Message request = null;
+    @Getter(NONE) @Setter(NONE)
+    private final Map<String,Message> parents = Collections.synchronizedMap(new Parents());
 
     /**
      * Sole constructor.
@@ -132,6 +139,8 @@ public abstract class Server extends ScheduledThreadPoolExecutor {
         in = new ByteArrayInputStream(new byte[] { });
         out = new PrintStreamBuffer();
         err = new PrintStreamBuffer();
+
+        parents.clear();
     }
 
     /**
@@ -181,6 +190,41 @@ public abstract class Server extends ScheduledThreadPoolExecutor {
      */
     protected void pub(Message message) { iopub.pub(message); }
 
+    /**
+     * Method to record the request (parent) {@link Message} of a
+     * {@code mime-bundle} with a {@code display_id} (see
+     * {@link #parentOf(JsonNode)}).  Should be called when the display
+     * is published.
+     *
+     * @param   request         The request {@link Message}.
+     * @param   bundle          The {@code mime-bundle}.
+     */
+    protected void recordParent(Message request, JsonNode bundle) {
+        var node = bundle.at("/transient/display_id");
+
+        if (request != null && node.isTextual()) {
+            parents.put(node.asText(), request);
+        }
+    }
+
+    /**
+     * Method to get the request (parent) {@link Message} of the display
+     * identified by the {@code mime-bundle}'s {@code display_id}.  Allows
+     * a background {@code update_display_data} to be sent with the parent
+     * of the display rather than that of whichever request happens to be
+     * current.
+     *
+     * @param   bundle          The {@code mime-bundle}.
+     *
+     * @return  The parent {@link Message} if known; {@code null}
+     *          otherwise.
+     */
+    protected Message parentOf(JsonNode bundle) {
+        var node = bundle.at("/transient/display_id");
+
+        return node.isTextual() ? parents.get(node.asText()) : null;
+    }
+
     /**
      * Method to stamp an outgoing {@link Message}.  Adds
      * {@link #PROTOCOL_VERSION}, session, and
@@ -202,6 +246,22 @@ public abstract class Server extends ScheduledThreadPoolExecutor {
         return message.timestamp();
     }
 
+    /*
+     * Most recently published display_ids (bounded so abandoned displays
+     * do not accumulate).
+     */
+    @NoArgsConstructor @ToString
+    private static class Parents extends LinkedHashMap<String,Message> {
+        private static final long serialVersionUID = 6381207467112902174L;
+
+        private static final int LIMIT = 1024;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Message> eldest) {
+            return size() > LIMIT;
+        }
+    }
+
     @ToString
     private class Control extends Channel.Control {
         public Control() { super(Server.this); }
@@ -0,0 +1,404 @@
+package ganymede.shell;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import ganymede.kernel.client.KernelRestClient;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import jdk.jshell.JShell;
+import jdk.jshell.execution.DirectExecutionControl;
+import jdk.jshell.execution.LoaderDelegate;
+import jdk.jshell.spi.ExecutionControl;
+import jdk.jshell.spi.ExecutionControl.ClassBytecodes;
+import jdk.jshell.spi.ExecutionControl.ClassInstallException;
+import jdk.jshell.spi.ExecutionControl.EngineTerminationException;
+import jdk.jshell.spi.ExecutionControl.InternalException;
+import jdk.jshell.spi.ExecutionControlProvider;
+import jdk.jshell.spi.ExecutionEnv;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.extern.log4j.Log4j2;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * In-process {@link ExecutionControlProvider}.  {@link JShell} snippets
+ * are executed in the kernel JVM on a dedicated {@link ThreadGroup} with
+ * an isolated {@link ClassLoader} (parented by the platform
+ * {@link ClassLoader} so kernel classes are not visible to the notebook).
+ * {@link System#out} and {@link System#err} writes from the snippet
+ * {@link ThreadGroup} are routed to the {@link ExecutionEnv} streams (by
+ * a single {@link PrintStream} installed on first use).  If specified, the
+ * {@value KernelRestClient#PORT_PROPERTY} parameter is passed to the
+ * notebook's {@link KernelRestClient} rather than set as a {@link System}
+ * property.
+ *
+ * @see jdk.jshell.execution.LocalExecutionControlProvider
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@NoArgsConstructor @ToString @Log4j2
+public class IsolatedExecutionControlProvider implements ExecutionControlProvider {
+
+    /**
+     * The {@link ExecutionControlProvider} name ({@value #NAME}).
+     */
+    public static final String NAME = "ganymede-isolated";
+
+    private static final long STOP_GRACE_SECONDS = 2;
+    private static final AtomicInteger SEQUENCE = new AtomicInteger(0);
+
+    @Override
+    public String name() { return NAME; }
+
+    @Override
+    public ExecutionControl generate(ExecutionEnv env, Map<String,String> parameters) {
+        return new Control(env, parameters);
+    }
+
+    @ToString
+    private static class Control extends DirectExecutionControl {
+        private final Delegate delegate;
+        private final ThreadGroup group;
+        private final String port;
+        private final AtomicReference<Thread> thread = new AtomicReference<>();
+        private volatile boolean configured = false;
+
+        public Control(ExecutionEnv env, Map<String,String> parameters) {
+            this(new Delegate(), env, parameters);
+        }
+
+        private Control(Delegate delegate, ExecutionEnv env, Map<String,String> parameters) {
+            super(delegate);
+
+            this.delegate = delegate;
+            this.group = new ThreadGroup("jshell-" + SEQUENCE.incrementAndGet());
+            this.port = parameters.get(KernelRestClient.PORT_PROPERTY);
+
+            Redirect.OUT.register(group, env.userOut());
+            Redirect.ERR.register(group, env.userErr());
+        }
+
+        /*
+         * Sets the port on the notebook's (isolated) copy of
+         * KernelRestClient once it is on the class path.
+         */
+        private void configure() {
+            var name = KernelRestClient.class.getName();
+            var loader = delegate.loader();
+
+            if (port != null && (! configured)
+                && loader.getResource(name.replace('.', '/') + ".class") != null) {
+                try {
+                    loader.loadClass(name)
+                        .getMethod("setDefaultPort", int.class)
+                        .invoke(null, Integer.decode(port));
+                } catch (Exception exception) {
+                    log.warn("{}", exception, exception);
+                } finally {
+                    configured = true;
+                }
+            }
+        }
+
+        @Override
+        protected String invoke(Method method) throws Exception {
+            configure();
+
+            var result = new AtomicReference<Object>();
+            var throwable = new AtomicReference<Throwable>();
+            var thread =
+                new Thread(group, () -> {
+                        try {
+                            result.set(method.invoke(null));
+                        } catch (Throwable t) {
+                            throwable.set(t);
+                        }
+                }, group.getName() + "-snippet");
+
+            thread.setContextClassLoader(delegate.loader());
+
+            try {
+                this.thread.set(thread);
+
+                thread.start();
+                thread.join();
+            } finally {
+                this.thread.set(null);
+            }
+
+            var cause = throwable.get();
+
+            if (cause instanceof InvocationTargetException) {
+                if (cause.getCause() instanceof ThreadDeath) {
+                    throw new StoppedException();
+                }
+
+                throw (InvocationTargetException) cause;
+            } else if (cause instanceof ThreadDeath) {
+                throw new StoppedException();
+            } else if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause != null) {
+                throw new InvocationTargetException(cause);
+            }
+
+            return valueString(result.get());
+        }
+
+        /**
+         * Interrupts the snippet {@link Thread} and, if it does not
+         * terminate within a short grace period, falls back to
+         * {@link ThreadGroup#stop()} where the JVM still supports it.
+         */
+        @Override
+        @SuppressWarnings({ "deprecation", "removal" })
+        public void stop() throws EngineTerminationException, InternalException {
+            var thread = this.thread.get();
+
+            if (thread != null) {
+                group.interrupt();
+
+                try {
+                    thread.join(SECONDS.toMillis(STOP_GRACE_SECONDS));
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+
+                if (thread.isAlive()) {
+                    try {
+                        group.stop();
+                    } catch (UnsupportedOperationException exception) {
+                        log.warn("Cannot stop {}: {}", thread, exception.getMessage());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                group.interrupt();
+            } finally {
+                Redirect.OUT.unregister(group);
+                Redirect.ERR.unregister(group);
+                delegate.close();
+
+                super.close();
+            }
+        }
+    }
+
+    private static class Delegate implements LoaderDelegate {
+        private final Map<String,Class<?>> classes = new ConcurrentHashMap<>();
+        private Loader loader = new Loader();
+
+        public Loader loader() { return loader; }
+
+        @Override
+        public void load(ClassBytecodes[] cbcs) throws ClassInstallException, EngineTerminationException {
+            var loaded = new boolean[cbcs.length];
+
+            try {
+                for (var cbc : cbcs) {
+                    loader().declare(cbc.name(), cbc.bytecodes());
+                }
+
+                for (int i = 0; i < cbcs.length; i += 1) {
+                    var type = loader().loadClass(cbcs[i].name());
+
+                    classes.put(cbcs[i].name(), type);
+                    loaded[i] = true;
+                    /*
+                     * Force preparation.
+                     */
+                    type.getDeclaredMethods();
+                }
+            } catch (Throwable throwable) {
+                throw new ClassInstallException("load: " + throwable.getMessage(), loaded);
+            }
+        }
+
+        @Override
+        public void classesRedefined(ClassBytecodes[] cbcs) {
+            for (var cbc : cbcs) {
+                loader().declare(cbc.name(), cbc.bytecodes());
+            }
+        }
+
+        @Override
+        public void addToClasspath(String path) throws EngineTerminationException, InternalException {
+            try {
+                for (var element : path.split(File.pathSeparator)) {
+                    loader().addURL(new File(element).toURI().toURL());
+                }
+            } catch (Exception exception) {
+                throw new InternalException(exception.toString());
+            }
+        }
+
+        @Override
+        public Class<?> findClass(String name) throws ClassNotFoundException {
+            var type = classes.get(name);
+
+            if (type == null) {
+                throw new ClassNotFoundException(name + " not found");
+            }
+
+            return type;
+        }
+
+        public void close() {
+            classes.clear();
+
+            var loader = this.loader;
+
+            this.loader = null;
+
+            if (loader != null) {
+                try {
+                    loader.close();
+                } catch (IOException exception) {
+                    log.warn("{}", exception, exception);
+                }
+            }
+        }
+    }
+
+    private static class Loader extends URLClassLoader {
+        static { registerAsParallelCapable(); }
+
+        private final Map<String,byte[]> declared = new ConcurrentHashMap<>();
+
+        public Loader() {
+            super(new URL[] { }, ClassLoader.getPlatformClassLoader());
+        }
+
+        public void declare(String name, byte[] bytes) { declared.put(name, bytes); }
+
+        @Override
+        public void addURL(URL url) { super.addURL(url); }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            var bytes = declared.get(name);
+
+            return (bytes != null) ? defineClass(name, bytes, 0, bytes.length) : super.findClass(name);
+        }
+    }
+
+    /**
+     * {@link PrintStream} installed (once) as {@link System#out} (or
+     * {@link System#err}) that routes writes from threads in a registered
+     * {@link ThreadGroup} to its {@link ExecutionEnv} stream and all other
+     * writes to the previously installed {@link PrintStream}.
+     */
+    private static class Redirect extends PrintStream {
+        public static final Redirect OUT = new Redirect(true);
+        public static final Redirect ERR = new Redirect(false);
+
+        private final boolean stdout;
+        private final PrintStream previous;
+        private final Map<ThreadGroup,PrintStream> targets = new ConcurrentHashMap<>();
+        private boolean installed = false;
+
+        private Redirect(boolean stdout) {
+            this(stdout, stdout ? System.out : System.err);
+        }
+
+        private Redirect(boolean stdout, PrintStream previous) {
+            super(previous, true);
+
+            this.stdout = stdout;
+            this.previous = previous;
+        }
+
+        public void register(ThreadGroup group, PrintStream target) {
+            targets.put(group, target);
+
+            synchronized (Redirect.class) {
+                if (! installed) {
+                    if (stdout) {
+                        System.setOut(this);
+                    } else {
+                        System.setErr(this);
+                    }
+
+                    installed = true;
+                }
+            }
+        }
+
+        public void unregister(ThreadGroup group) {
+            var target = targets.remove(group);
+
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        private OutputStream stream() {
+            var current = Thread.currentThread().getThreadGroup();
+            OutputStream stream = previous;
+
+            for (var entry : targets.entrySet()) {
+                if (entry.getKey().parentOf(current)) {
+                    stream = entry.getValue();
+                    break;
+                }
+            }
+
+            return stream;
+        }
+
+        @Override
+        public void write(int b) {
+            try {
+                stream().write(b);
+            } catch (IOException exception) {
+                setError();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            try {
+                stream().write(bytes, offset, length);
+            } catch (IOException exception) {
+                setError();
+            }
+        }
+
+        @Override
+        public void flush() {
+            targets.values().forEach(PrintStream::flush);
+            previous.flush();
+        }
+    }
+}
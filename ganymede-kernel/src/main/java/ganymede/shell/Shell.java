@@ -31,9 +31,12 @@ import ganymede.server.Message;
 import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
@@ -54,6 +57,7 @@ import org.apache.logging.log4j.io.IoBuilder;
 
 import static ganymede.kernel.client.KernelRestClient.PORT_PROPERTY;
 import static ganymede.notebook.NotebookContext.unescape;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static jdk.jshell.Snippet.Status.REJECTED;
 import static org.apache.logging.log4j.Level.WARN;
 
@@ -78,6 +82,7 @@ public class Shell implements AutoCloseable {
     private final Java java = new Java();
     private final BuiltinMap builtins = new BuiltinMap();
     private final Resolver resolver = new Resolver();
+    private final SnippetIndex index = new SnippetIndex();
     private JShell jshell = null;
     private InputStream in = null;
     private PrintStream out = null;
@@ -132,6 +137,9 @@ public class Shell implements AutoCloseable {
         try (var jshell = this.jshell) {
             this.jshell = null;
 
+            index.reset(null);
+            java.reset();
+
             if (jshell != null) {
                 restarts.incrementAndGet();
             }
@@ -222,16 +230,7 @@ public class Shell implements AutoCloseable {
      *
      * @return  The {@link Set} of imports as {@link String}s.
      */
-    public Set<String> imports() {
-        var imports = Set.<String>of();
-        var jshell = this.jshell;
-
-        if (jshell != null) {
-            imports = NotebookContext.imports(jshell);
-        }
-
-        return imports;
-    }
+    public Set<String> imports() { return index.imports(); }
 
     /**
      * Method to get the current {@link Map} of defined variables to their
@@ -240,16 +239,16 @@ public class Shell implements AutoCloseable {
      * @return  The {@link Map} of defined variables and their types as
      *          {@link String}s.
      */
-    public Map<String,String> variables() {
-        var variables = Map.<String,String>of();
-        var jshell = this.jshell;
+    public Map<String,String> variables() { return index.variables(); }
 
-        if (jshell != null) {
-            variables = NotebookContext.variables(jshell);
-        }
-
-        return variables;
-    }
+    /**
+     * Method to get the version of the {@link #imports()} and
+     * {@link #variables()}.  The version increases monotonically (across
+     * restarts) whenever either changes.
+     *
+     * @return  The version.
+     */
+    public long version() { return index.version(); }
 
     /**
      * Accessor to the {@link JShell} instance (created and initialized on
@@ -275,10 +274,25 @@ public class Shell implements AutoCloseable {
 
             if (! kernel.isTerminating()) {
                 try {
-                    jshell =
-                        JShell.builder()
-                        .remoteVMOptions(options.toArray(new String[] { }))
-                        .in(in).out(out).err(err).build();
+                    var builder = JShell.builder().in(in).out(out).err(err);
+
+                    switch (kernel.getExecutionEngine()) {
+                    case local:
+                        builder.executionEngine(new IsolatedExecutionControlProvider(),
+                                                Map.of(PORT_PROPERTY, String.valueOf(kernel.getPort())));
+                        break;
+
+                    case remote:
+                    default:
+                        builder.remoteVMOptions(options.toArray(new String[] { }));
+                        break;
+                    }
+
+                    jshell = builder.build();
+
+                    jshell.onSnippetEvent(index);
+                    index.reset(jshell);
+                    java.reset();
 
                     resolver().classpath()
                         .forEach(t -> jshell.addToClasspath(t.toString()));
@@ -312,7 +326,7 @@ public class Shell implements AutoCloseable {
         var jshell = jshell();
 
         try {
-            NotebookContext.preExecute(jshell);
+            NotebookContext.preExecute(jshell, variables());
 
             var application = new Magic.Application(code);
             var name = application.getMagicName();
@@ -391,6 +405,14 @@ public class Shell implements AutoCloseable {
         }
     }
 
+    /**
+     * {@link JShell} execution engine selection.  {@link #remote} (the
+     * default) executes snippets in a separate JVM;  {@link #local}
+     * executes snippets in the kernel JVM with an isolated
+     * {@link ClassLoader}.  See {@link IsolatedExecutionControlProvider}.
+     */
+    public enum ExecutionEngine { remote, local };
+
     /**
      * Method to get the number of times {@link.this} {@link Shell} has been
      * restarted.
@@ -441,38 +463,296 @@ public class Shell implements AutoCloseable {
             return completeness;
         }
 
+        private static final int PARSES_CACHE_SIZE = 16;
+
+        private final Map<String,Object> parses =
+            Collections.synchronizedMap(new LinkedHashMap<String,Object>(PARSES_CACHE_SIZE, 0.75f, true) {
+                    private static final long serialVersionUID = -3393622367383224052L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String,Object> eldest) {
+                        return size() > PARSES_CACHE_SIZE;
+                    }
+                });
+
+        /**
+         * Method to clear the cached parses.  Called whenever the
+         * {@link JShell} instance is replaced.
+         */
+        public void reset() { parses.clear(); }
+
+        /**
+         * Method to parse a cell into
+         * {@link SourceCodeAnalysis.CompletionInfo} snippets keyed by
+         * offset.  Parses are cached by code hash so an
+         * {@code is_complete_request} and the following
+         * {@code execute_request} share the result.
+         */
         private SortedMap<Integer,SourceCodeAnalysis.CompletionInfo> parse(JShell jshell, String code) throws ParseException {
+            var value = parses.computeIfAbsent(hash(code), k -> {
+                    try {
+                        return Collections.unmodifiableSortedMap(scan(jshell, code));
+                    } catch (ParseException exception) {
+                        return exception;
+                    }
+                });
+
+            if (value instanceof ParseException) {
+                throw (ParseException) value;
+            }
+
+            @SuppressWarnings({ "unchecked" })
+            var map = (SortedMap<Integer,SourceCodeAnalysis.CompletionInfo>) value;
+
+            return map;
+        }
+
+        private String hash(String code) {
+            var hash = String.valueOf(code.hashCode());
+
+            try {
+                var bytes = MessageDigest.getInstance("SHA-256").digest(code.getBytes(UTF_8));
+
+                hash = new BigInteger(1, bytes).toString(16);
+            } catch (Exception exception) {
+                log.warn("{}", exception, exception);
+            }
+
+            return code.length() + ":" + hash;
+        }
+
+        /*
+         * Single pass over the code: candidate snippet boundaries are
+         * located with a lightweight lexer and each region is analyzed on
+         * its own (merged with the following region if incomplete) so the
+         * analyzer never sees the whole remaining cell.
+         */
+        private TreeMap<Integer,SourceCodeAnalysis.CompletionInfo> scan(JShell jshell, String code) throws ParseException {
             var map = new TreeMap<Integer,SourceCodeAnalysis.CompletionInfo>();
             var analyzer = jshell.sourceCodeAnalysis();
+            var boundaries = boundaries(code);
+            var last = code.length();
+
+            while (last > 0 && Character.isWhitespace(code.charAt(last - 1))) {
+                last -= 1;
+            }
+
             var offset = 0;
-            var remaining = code;
+            var index = 0;
+            var end = 0;
+
+            while (offset < last) {
+                while (end <= offset) {
+                    end = boundaries[index++];
+                }
 
-            while (! remaining.isEmpty()) {
-                var value = analyzer.analyzeCompletion(remaining);
+                var value = analyzer.analyzeCompletion(code.substring(offset, end));
 
                 switch (value.completeness()) {
                 case DEFINITELY_INCOMPLETE:
+                    if (end < code.length()) {
+                        end = boundaries[index++];
+                        continue;
+                    }
+
                     throw new IncompleteParseException(offset);
                     /* break; */
 
                 case UNKNOWN:
+                    if (end < code.length()) {
+                        end = boundaries[index++];
+                        continue;
+                    }
+
                     throw new UnknownParseException(offset);
                     /* break; */
 
                 default:
                     map.put(offset, value);
 
-                    offset += value.source().length();
-                    remaining = remaining.substring(value.source().length());
+                    var next = end - value.remaining().length();
+
+                    offset = (next > offset) ? next : end;
                     break;
                 }
+            }
+
+            return map;
+        }
+
+        /*
+         * Returns the (ascending) offsets following each top-level ";" and
+         * each top-level "}" that cannot continue the current statement
+         * (e.g., not followed by "else", "catch", "finally", or "while").
+         * The last element is always code.length().
+         */
+        private int[] boundaries(String code) {
+            var list = new ArrayList<Integer>();
+            var length = code.length();
+            var depth = 0;
+            var i = 0;
+
+            while (i < length) {
+                var ch = code.charAt(i);
+
+                if (ch == '/' && i + 1 < length && code.charAt(i + 1) == '/') {
+                    i = skipLineComment(code, i);
+                } else if (ch == '/' && i + 1 < length && code.charAt(i + 1) == '*') {
+                    i = skipBlockComment(code, i);
+                } else if (ch == '"' || ch == '\'') {
+                    i = skipLiteral(code, i);
+                } else {
+                    switch (ch) {
+                    case '(':
+                    case '[':
+                    case '{':
+                        depth += 1;
+                        break;
 
-                if (remaining.isBlank()) {
+                    case ')':
+                    case ']':
+                        depth = Math.max(0, depth - 1);
+                        break;
+
+                    case '}':
+                        depth = Math.max(0, depth - 1);
+
+                        if (depth == 0 && isStatementStart(code, skipWhitespaceAndComments(code, i + 1))) {
+                            list.add(i + 1);
+                        }
+                        break;
+
+                    case ';':
+                        if (depth == 0 && (! isContinuation(code, skipWhitespaceAndComments(code, i + 1)))) {
+                            list.add(i + 1);
+                        }
+                        break;
+
+                    default:
+                        break;
+                    }
+
+                    i += 1;
+                }
+            }
+
+            if (list.isEmpty() || list.get(list.size() - 1) != length) {
+                list.add(length);
+            }
+
+            return list.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private boolean isStatementStart(String code, int i) {
+            var start = true;
+
+            if (i < code.length()) {
+                var ch = code.charAt(i);
+
+                if (Character.isJavaIdentifierStart(ch)) {
+                    start = (! isContinuation(code, i));
+                } else {
+                    start = (ch == '{' || ch == '@' || ch == '"' || ch == '\'' || Character.isDigit(ch));
+                }
+            }
+
+            return start;
+        }
+
+        /*
+         * A keyword that continues the preceding statement.  "while" may
+         * also start a new statement but the boundary is only an
+         * optimization:  The analyzer splits the longer region correctly.
+         */
+        private boolean isContinuation(String code, int i) {
+            var end = i;
+
+            while (end < code.length() && Character.isJavaIdentifierPart(code.charAt(end))) {
+                end += 1;
+            }
+
+            var continuation = false;
+
+            if (end > i && Character.isJavaIdentifierStart(code.charAt(i))) {
+                switch (code.substring(i, end)) {
+                case "catch":
+                case "else":
+                case "finally":
+                case "while":
+                    continuation = true;
+                    break;
+
+                default:
                     break;
                 }
             }
 
-            return map;
+            return continuation;
+        }
+
+        private int skipWhitespaceAndComments(String code, int i) {
+            var length = code.length();
+
+            while (i < length) {
+                var ch = code.charAt(i);
+
+                if (Character.isWhitespace(ch)) {
+                    i += 1;
+                } else if (ch == '/' && i + 1 < length && code.charAt(i + 1) == '/') {
+                    i = skipLineComment(code, i);
+                } else if (ch == '/' && i + 1 < length && code.charAt(i + 1) == '*') {
+                    i = skipBlockComment(code, i);
+                } else {
+                    break;
+                }
+            }
+
+            return i;
+        }
+
+        private int skipLineComment(String code, int i) {
+            var end = code.indexOf('\n', i);
+
+            return (end >= 0) ? end + 1 : code.length();
+        }
+
+        private int skipBlockComment(String code, int i) {
+            var end = code.indexOf("*/", i + 2);
+
+            return (end >= 0) ? end + 2 : code.length();
+        }
+
+        private int skipLiteral(String code, int i) {
+            var length = code.length();
+
+            if (code.startsWith("\"\"\"", i)) {
+                i += 3;
+
+                while (i < length && (! code.startsWith("\"\"\"", i))) {
+                    i += (code.charAt(i) == '\\') ? 2 : 1;
+                }
+
+                return Math.min(i + 3, length);
+            }
+
+            var quote = code.charAt(i);
+
+            i += 1;
+
+            while (i < length) {
+                var ch = code.charAt(i);
+
+                if (ch == '\\') {
+                    i += 2;
+                } else if (ch == quote || ch == '\n') {
+                    i += 1;
+                    break;
+                } else {
+                    i += 1;
+                }
+            }
+
+            return Math.min(i, length);
         }
 
         @Override
@@ -0,0 +1,156 @@
+package ganymede.shell;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import jdk.jshell.ImportSnippet;
+import jdk.jshell.JShell;
+import jdk.jshell.Snippet;
+import jdk.jshell.SnippetEvent;
+import jdk.jshell.VarSnippet;
+import lombok.NoArgsConstructor;
+import lombok.Synchronized;
+import lombok.ToString;
+
+import static jdk.jshell.Snippet.SubKind.TEMP_VAR_EXPRESSION_SUBKIND;
+
+/**
+ * Incrementally maintained index of active {@link JShell} imports and
+ * variables.  Updated from {@link JShell#onSnippetEvent(Consumer)} so
+ * callers do not walk {@link JShell#imports()} and
+ * {@link JShell#variables()} on every request.  The
+ * {@link #version() version} increases monotonically whenever the
+ * imports or variable types change (including on {@link #reset(JShell)}).
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@NoArgsConstructor @ToString
+public class SnippetIndex implements Consumer<SnippetEvent> {
+    private final Map<String,String> imports = new LinkedHashMap<>();
+    private final Map<String,VarSnippet> variables = new LinkedHashMap<>();
+    private long version = 0;
+    private Set<String> importsSnapshot = null;
+    private Map<String,String> variablesSnapshot = null;
+
+    /**
+     * Method to get the current version.
+     *
+     * @return  The version.
+     */
+    @Synchronized
+    public long version() { return version; }
+
+    /**
+     * Method to clear the index and seed it from a new {@link JShell}
+     * instance (whose startup snippets were evaluated before any listener
+     * could be registered).
+     *
+     * @param   jshell          The {@link JShell} (may be {@code null}).
+     */
+    @Synchronized
+    public void reset(JShell jshell) {
+        imports.clear();
+        variables.clear();
+
+        if (jshell != null) {
+            Stream.concat(jshell.imports(), jshell.variables()).forEach(t -> update(t, true));
+        }
+
+        changed();
+    }
+
+    @Override
+    @Synchronized
+    public void accept(SnippetEvent event) {
+        if (update(event.snippet(), event.status().isActive())) {
+            changed();
+        }
+    }
+
+    private boolean update(Snippet snippet, boolean active) {
+        var changed = false;
+        var id = snippet.id();
+
+        if (snippet instanceof ImportSnippet) {
+            var source = snippet.source().strip();
+
+            changed = active ? (! source.equals(imports.put(id, source))) : (imports.remove(id) != null);
+        } else if (snippet instanceof VarSnippet) {
+            var variable = (VarSnippet) snippet;
+
+            if (active && (! variable.subKind().equals(TEMP_VAR_EXPRESSION_SUBKIND))) {
+                var previous = variables.put(id, variable);
+
+                changed = (previous == null) || (! Objects.equals(previous.typeName(), variable.typeName()));
+            } else {
+                changed = (variables.remove(id) != null);
+            }
+        }
+
+        return changed;
+    }
+
+    private void changed() {
+        version += 1;
+        importsSnapshot = null;
+        variablesSnapshot = null;
+    }
+
+    /**
+     * Method to get the current imports.
+     *
+     * @return  The {@link Set} of imports as {@link String}s.
+     */
+    @Synchronized
+    public Set<String> imports() {
+        if (importsSnapshot == null) {
+            importsSnapshot = Collections.unmodifiableSet(new LinkedHashSet<>(imports.values()));
+        }
+
+        return importsSnapshot;
+    }
+
+    /**
+     * Method to get the current {@link Map} of defined variables to their
+     * type definitions.
+     *
+     * @return  The {@link Map} of defined variables and their types as
+     *          {@link String}s.
+     */
+    @Synchronized
+    public Map<String,String> variables() {
+        if (variablesSnapshot == null) {
+            var map = new TreeMap<String,String>();
+
+            variables.values().forEach(t -> map.put(t.name(), t.typeName()));
+
+            variablesSnapshot = Collections.unmodifiableMap(map);
+        }
+
+        return variablesSnapshot;
+    }
+}
@@ -0,0 +1,97 @@
+package ganymede.shell.builtin;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import ball.annotation.ServiceProviderFor;
+import ganymede.notebook.Description;
+import ganymede.notebook.Magic;
+import ganymede.notebook.OutputBudget;
+import ganymede.shell.Builtin;
+import ganymede.shell.Shell;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.extern.log4j.Log4j2;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+/**
+ * {@link Budget} {@link Builtin}.  Executes the remainder of the cell (as
+ * Java) with the specified {@link OutputBudget}s or prints the budgets in
+ * effect if the cell is otherwise empty.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ServiceProviderFor({ Builtin.class, Magic.class })
+@Description("Execute cell with output size budgets or print budgets")
+@NoArgsConstructor @ToString @Log4j2
+public class Budget extends Builtin {
+    @Override
+    public void execute(Shell shell, InputStream in, PrintStream out, PrintStream err, Application application) throws Exception {
+        var arguments = new Arguments();
+
+        parse(application.getArgv(), arguments);
+
+        var specification = String.join(" ", arguments.getBudgets());
+        var code = application.getCode();
+
+        if (Magic.isCellMagic(code.strip())) {
+            err.println("Cell must be Java code");
+        } else {
+            try {
+                OutputBudget.setCellBudgets(specification);
+                shell.evaluate(call("setCellBudgets", specification));
+
+                if (! code.isBlank()) {
+                    shell.execute(code);
+                } else {
+                    out.println(shell.evaluate(call("getBudgets")));
+                }
+            } finally {
+                OutputBudget.clearCellBudgets();
+                shell.evaluate(call("clearCellBudgets"));
+            }
+        }
+    }
+
+    private String call(String method, String... argv) {
+        var arguments = new ArrayList<String>();
+
+        for (var argument : argv) {
+            arguments.add("\"" + argument.replace("\\", "\\\\").replace("\"", "\\\"") + "\"");
+        }
+
+        return String.format("%s.%s(%s)",
+                             OutputBudget.class.getCanonicalName(), method, String.join(", ", arguments));
+    }
+
+    @Override
+    public String getUsage() { return getUsage(new Arguments()); }
+
+    @Command @Data
+    private class Arguments {
+        @Parameters(description = { "SIZE (all MIME types) or MIME-TYPE=SIZE (k, m, or g suffix; 0 for unlimited)" },
+                    arity = "0..*")
+        private List<String> budgets = new ArrayList<>();
+    }
+}
@@ -23,7 +23,10 @@ import ganymede.jupyter.NotebookServicesClient;
 import ganymede.jupyter.notebook.model.Kernel;
 import ganymede.jupyter.notebook.model.Session;
 import ganymede.kernel.client.KernelRestClient;
+import ganymede.util.ConnectionPool;
 import ganymede.util.ObjectMappers;
+import ganymede.util.ResultCache;
+import ganymede.util.ServiceProviderMap;
 import java.io.IOException;
 import java.io.StreamTokenizer;
 import java.io.StringReader;
@@ -52,6 +55,7 @@ import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.Result;
 import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.JDBCUtils;
 
 import static java.lang.reflect.Modifier.isPublic;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -156,8 +160,14 @@ public class NotebookContext {
                 .filter(t -> kernelId.equals(t.getKernel().getId()))
                 .findFirst().orElse(null);
 
-            classpath.clear();
-            classpath.addAll(krc.classpath());
+            var list = krc.classpath();
+
+            if (! classpath.equals(list)) {
+                classpath.clear();
+                classpath.addAll(list);
+
+                ServiceProviderMap.invalidate();
+            }
 
             imports.clear();
             imports.addAll(krc.imports());
@@ -209,7 +219,28 @@ public class NotebookContext {
     @NotebookFunction
     public void display(Object object) {
         try {
-            krc.display(Renderer.MAP.render(object));
+            Renderer.MAP.publish(krc::display, object);
+        } catch (Exception exception) {
+            System.out.println(object);
+            exception.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * {@link NotebookFunction} to update a previous display (identified by
+     * {@code display_id}) from a Notebook cell.
+     *
+     * @param   id              The {@code display_id}.
+     * @param   object          The {@link Object} to display.
+     */
+    @NotebookFunction
+    public void updateDisplay(String id, Object object) {
+        try {
+            var bundle = Renderer.MAP.render(object);
+
+            bundle.with("transient").put("display_id", id);
+
+            krc.updateDisplay(bundle);
         } catch (Exception exception) {
             System.out.println(object);
             exception.printStackTrace(System.err);
@@ -224,7 +255,7 @@ public class NotebookContext {
     @NotebookFunction
     public void print(Object object) {
         try {
-            krc.print(Renderer.MAP.render(object));
+            Renderer.MAP.publish(krc::print, object);
         } catch (Exception exception) {
             System.out.println(object);
             exception.printStackTrace(System.err);
@@ -369,9 +400,19 @@ public class NotebookContext {
      * @param   jshell          The {@link JShell}.
      */
     public static void preExecute(JShell jshell) {
-        evaluate(jshell, "%1$s.refresh()", NAME);
+        preExecute(jshell, variables(jshell));
+    }
 
-        var variables = variables(jshell);
+    /**
+     * Static method used by the {@link ganymede.shell.Shell} REPL to update
+     * the {@link NotebookContext} instance before execution.
+     *
+     * @param   jshell          The {@link JShell}.
+     * @param   variables       The {@link Map} of defined variables (see
+     *                          {@link #variables(JShell)}).
+     */
+    public static void preExecute(JShell jshell, Map<String,String> variables) {
+        evaluate(jshell, "%1$s.refresh()", NAME);
 
         for (var entry : variables.entrySet()) {
             evaluate(jshell,
@@ -459,6 +500,13 @@ public class NotebookContext {
          */
         public final List<Result<Record>> results = new ArrayList<>();
 
+        /**
+         * {@link ganymede.kernel.magic.SQL} (opt-in) {@link ResultCache}.
+         *
+         * @serial
+         */
+        public final ResultCache cache = new ResultCache();
+
         /**
          * Target of the {@link ganymede.kernel.magic.SQL} {@link Magic}.
          *
@@ -469,7 +517,45 @@ public class NotebookContext {
          * @return      The {@link DSLContext} corresponding to the URL.
          */
         public DSLContext connect(String url, String username, String password) {
-            return computeIfAbsent(toKey(url), k -> DSL.using(url, username, password));
+            return computeIfAbsent(toKey(url),
+                                   k -> DSL.using(new ConnectionPool(url, username, password), JDBCUtils.dialect(url)));
+        }
+
+        /**
+         * Method to get the {@link ConnectionPool}s backing the
+         * established connections.
+         *
+         * @return      The {@link Map} of connection keys to
+         *              {@link ConnectionPool}s.
+         */
+        public Map<String,ConnectionPool> pools() {
+            var map = new LinkedHashMap<String,ConnectionPool>();
+
+            forEach((key, value) -> {
+                    var provider = value.configuration().connectionProvider();
+
+                    if (provider instanceof ConnectionPool) {
+                        map.put(key, (ConnectionPool) provider);
+                    }
+                });
+
+            return map;
+        }
+
+        /**
+         * Method to get the connection key of an established
+         * {@link DSLContext}.
+         *
+         * @param       dsl             The {@link DSLContext}.
+         *
+         * @return      The key (normalized JDBC URL) or {@code null} if
+         *              not established by {@link #connect(String,String,String)}.
+         */
+        public String keyOf(DSLContext dsl) {
+            return entrySet().stream()
+                .filter(t -> t.getValue() == dsl)
+                .map(Map.Entry::getKey)
+                .findFirst().orElse(null);
         }
 
         private String toKey(String url) {
@@ -0,0 +1,362 @@
+package ganymede.notebook;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.NoArgsConstructor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static lombok.AccessLevel.PRIVATE;
+import static org.springframework.util.MimeTypeUtils.TEXT_HTML_VALUE;
+import static org.springframework.util.MimeTypeUtils.TEXT_PLAIN_VALUE;
+
+/**
+ * {@code mime-bundle} output size governor.  Each representation in a
+ * bundle (measured in characters of its JSON value) is limited to a
+ * per-MIME-type budget.  An oversized {@code text/*} representation is
+ * replaced by a truncated preview (for {@code text/html}, built from the
+ * {@code text/plain} representation if there is one), any other
+ * oversized representation is removed, and the full content is written
+ * to a file in {@link #DIRECTORY_PROPERTY} whose path is reported in the
+ * {@code text/plain} representation and the bundle metadata.
+ *
+ * <p>Notebook-level budgets are read from the {@value #BUDGET_PROPERTY}
+ * (all types) and {@value #BUDGET_PROPERTY}{@code .<mime-type>}
+ * {@link System} properties (which may be specified in the kernel
+ * configuration or with the {@code %%sysproperties} magic).  Sizes may
+ * have a {@code k}, {@code m}, or {@code g} suffix; {@code 0} disables the
+ * limit.  Budgets for a single cell may be specified with
+ * {@link #setCellBudgets(String)} (see the {@code %%budget} magic).</p>
+ *
+ * @see RendererMap#render(Object,Object...)
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@NoArgsConstructor(access = PRIVATE)
+public abstract class OutputBudget {
+
+    /**
+     * {@link System} property to specify the default budget (and, as
+     * prefix, the budget for a specific MIME type)
+     * ({@value #BUDGET_PROPERTY}).
+     */
+    public static final String BUDGET_PROPERTY = "ganymede.renderer.budget";
+
+    /**
+     * {@link System} property to specify the directory for full output
+     * ({@value #DIRECTORY_PROPERTY}).
+     */
+    public static final String DIRECTORY_PROPERTY = "ganymede.renderer.budget.directory";
+
+    /**
+     * Default budget ({@value #BUDGET} characters).
+     */
+    public static final long BUDGET = 8L * 1024 * 1024;
+
+    /**
+     * Maximum preview length ({@value #PREVIEW} characters).
+     */
+    public static final int PREVIEW = 4096;
+
+    /**
+     * Key (in {@link Renderer#METADATA}) of the {@link Map} of truncated
+     * MIME types to full output paths ({@value #TRUNCATED}).
+     */
+    public static final String TRUNCATED = "truncated";
+
+    private static final String DEFAULT = "*";
+
+    private static volatile Map<String,Long> cell = Collections.emptyMap();
+
+    /**
+     * Method to specify the budgets for the current cell.  The
+     * specification is a whitespace-separated list of {@code SIZE} (all
+     * types) and {@code MIME-TYPE=SIZE} terms.
+     *
+     * @param   specification   The budget specification.
+     *
+     * @throws  IllegalArgumentException
+     *                          If the specification cannot be parsed.
+     */
+    public static void setCellBudgets(String specification) {
+        var map = new TreeMap<String,Long>();
+
+        for (var term : specification.strip().split("\\s+")) {
+            if (! term.isEmpty()) {
+                var pair = term.split("=", 2);
+
+                if (pair.length > 1) {
+                    map.put(pair[0].strip(), parse(pair[1]));
+                } else {
+                    map.put(DEFAULT, parse(pair[0]));
+                }
+            }
+        }
+
+        cell = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Method to clear the budgets for the current cell.
+     */
+    public static void clearCellBudgets() { cell = Collections.emptyMap(); }
+
+    /**
+     * Method to get the budget in effect for a MIME type.
+     *
+     * @param   type            The MIME type.
+     *
+     * @return  The budget (in characters) or {@code 0} for unlimited.
+     */
+    public static long getBudget(String type) {
+        var cell = OutputBudget.cell;
+        var budget = cell.get(type);
+
+        if (budget == null) {
+            var property = System.getProperty(BUDGET_PROPERTY + "." + type);
+
+            if (property != null && (! property.isBlank())) {
+                budget = parse(property);
+            }
+        }
+
+        if (budget == null) {
+            budget = cell.get(DEFAULT);
+        }
+
+        if (budget == null) {
+            var property = System.getProperty(BUDGET_PROPERTY);
+
+            budget = (property != null && (! property.isBlank())) ? parse(property) : BUDGET;
+        }
+
+        return Math.max(0, budget);
+    }
+
+    /**
+     * Method to get the effective budgets for the representations of
+     * interest (for display).
+     *
+     * @return  The {@link Map} of MIME type to budget.
+     */
+    public static Map<String,Long> getBudgets() {
+        var map = new LinkedHashMap<String,Long>();
+
+        map.put(DEFAULT, getBudget(DEFAULT));
+
+        System.getProperties().stringPropertyNames().stream()
+            .filter(t -> t.startsWith(BUDGET_PROPERTY + ".") && t.contains("/"))
+            .map(t -> t.substring(BUDGET_PROPERTY.length() + 1))
+            .sorted()
+            .forEach(t -> map.put(t, getBudget(t)));
+        cell.keySet().forEach(t -> map.put(t, getBudget(t)));
+
+        return map;
+    }
+
+    /**
+     * Method to parse a size specification:  A non-negative integer with
+     * an optional {@code k}, {@code m}, or {@code g} suffix.
+     *
+     * @param   string          The size specification.
+     *
+     * @return  The size.
+     *
+     * @throws  IllegalArgumentException
+     *                          If the specification cannot be parsed.
+     */
+    public static long parse(String string) {
+        var value = string.strip().toLowerCase();
+        var multiplier = 1L;
+
+        if (value.endsWith("k")) {
+            multiplier = 1024L;
+        } else if (value.endsWith("m")) {
+            multiplier = 1024L * 1024;
+        } else if (value.endsWith("g")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1).strip();
+        }
+
+        var size = 0L;
+
+        try {
+            size = Long.parseLong(value) * multiplier;
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid size: " + string);
+        }
+
+        return size;
+    }
+
+    /**
+     * Method to enforce the budgets on a {@code mime-bundle}.
+     *
+     * @param   bundle          The {@code mime-bundle}.
+     */
+    public static void enforce(ObjectNode bundle) {
+        if (bundle.get(Renderer.DATA) instanceof ObjectNode) {
+            var data = bundle.with(Renderer.DATA);
+            var plain = data.path(TEXT_PLAIN_VALUE).asText(null);
+            var notes = new ArrayList<String>();
+
+            for (var type : iterable(data)) {
+                var budget = getBudget(type);
+
+                if (budget > 0) {
+                    var node = data.get(type);
+                    var text = node.isTextual() ? node.asText() : node.toString();
+
+                    if (text.length() > budget) {
+                        truncate(bundle, type, text, budget, plain, notes);
+                    }
+                }
+            }
+
+            if (! notes.isEmpty()) {
+                var text = data.path(TEXT_PLAIN_VALUE).asText("");
+
+                for (var note : notes) {
+                    text += (text.isEmpty() ? "" : "\n") + note;
+                }
+
+                data.put(TEXT_PLAIN_VALUE, text);
+            }
+        }
+    }
+
+    private static Iterable<String> iterable(JsonNode data) {
+        var list = new ArrayList<String>();
+
+        data.fieldNames().forEachRemaining(list::add);
+
+        return list;
+    }
+
+    private static void truncate(ObjectNode bundle, String type, String text, long budget,
+                                 String plain, ArrayList<String> notes) {
+        var data = bundle.with(Renderer.DATA);
+        Path path = null;
+
+        try {
+            path = save(type, text);
+            bundle.with(Renderer.METADATA).with(TRUNCATED).put(type, path.toString());
+        } catch (Exception exception) {
+            exception.printStackTrace(System.err);
+        }
+
+        var note =
+            String.format("... %s output truncated (%,d characters exceeds budget of %,d)%s",
+                          type, text.length(), budget,
+                          (path != null) ? "; full output written to " + path : "");
+        var length = (int) Math.min(budget, PREVIEW);
+        var preview = text.substring(0, length);
+
+        if (type.equals(TEXT_HTML_VALUE)) {
+            if (plain != null) {
+                preview = plain.substring(0, Math.min(plain.length(), length));
+            } else {
+                preview = preview.replaceAll("<[^>]*(>|$)", "");
+            }
+
+            data.put(type, "<pre>" + escape(preview) + "</pre><p><em>" + escape(note) + "</em></p>");
+        } else if (type.equals(TEXT_PLAIN_VALUE)) {
+            data.put(type, preview + "\n" + note);
+        } else if (type.startsWith("text/")) {
+            data.put(type, preview + "\n" + note);
+            notes.add(note);
+        } else {
+            data.remove(type);
+
+            if (bundle.get(Renderer.METADATA) instanceof ObjectNode) {
+                bundle.with(Renderer.METADATA).remove(type);
+            }
+
+            notes.add(note);
+        }
+    }
+
+    private static Path save(String type, String text) throws Exception {
+        var directory =
+            Paths.get(System.getProperty(DIRECTORY_PROPERTY,
+                                         Paths.get(System.getProperty("java.io.tmpdir"), "ganymede").toString()));
+
+        Files.createDirectories(directory);
+
+        var subtype = type.substring(type.indexOf('/') + 1);
+        var suffix = subtype.replaceAll("[+;].*$", "").replaceAll("^x-", "").replaceAll("[^A-Za-z0-9.-]", "");
+
+        if (suffix.equals("plain")) {
+            suffix = "txt";
+        }
+
+        var path = Files.createTempFile(directory, "output-", "." + suffix);
+
+        if (type.startsWith("image/") && (! subtype.contains("svg"))) {
+            Files.write(path, Base64.getMimeDecoder().decode(text));
+        } else {
+            Files.write(path, text.getBytes(UTF_8));
+        }
+
+        return path;
+    }
+
+    private static String escape(String string) {
+        var buffer = new StringBuilder(string.length());
+
+        for (var c : string.toCharArray()) {
+            switch (c) {
+            case '<':
+                buffer.append("&lt;");
+                break;
+
+            case '>':
+                buffer.append("&gt;");
+                break;
+
+            case '&':
+                buffer.append("&amp;");
+                break;
+
+            case '"':
+                buffer.append("&quot;");
+                break;
+
+            default:
+                buffer.append(c);
+                break;
+            }
+        }
+
+        return buffer.toString();
+    }
+}
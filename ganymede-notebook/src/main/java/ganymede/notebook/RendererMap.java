@@ -21,13 +21,18 @@ package ganymede.notebook;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import ganymede.util.ServiceProviderMap;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.TreeMap;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import static java.util.stream.Collectors.toList;
+
 /**
  * {@link Renderer} {@link java.util.Map}.
  *
@@ -38,9 +43,11 @@ public class RendererMap extends TreeMap<Class<?>,Renderer> {
 
     private static final Comparator<Class<?>> COMPARATOR =
         new IsAssignableFromOrder().thenComparing(Class::getName);
+    private static final ThreadLocal<Publication> PUBLICATION = new ThreadLocal<>();
 
     /** @serial */
     private final ServiceProviderMap<Renderer> map;
+    private transient volatile ClassValue<Optional<Renderer>> cache = new Cache();
 
     /**
      * Sole constructor.
@@ -54,10 +61,58 @@ public class RendererMap extends TreeMap<Class<?>,Renderer> {
     private Renderer compute(ServiceLoader.Provider<Renderer> provider) {
         var value = provider.get().instance().orElse(null);
         var key = (value != null) ? value.getRenderType() : null;
+        var renderer = (Renderer) null;
+
+        if (key != null) {
+            renderer = get(key);
+
+            if (renderer == null) {
+                renderer = configure(value);
+                put(key, renderer);
+            }
+        }
 
-        return (key != null) ? computeIfAbsent(key, k -> configure(value)) : null;
+        return renderer;
+    }
+
+    @Override
+    public Renderer put(Class<?> key, Renderer value) {
+        try {
+            return super.put(key, value);
+        } finally {
+            invalidate();
+        }
     }
 
+    @Override
+    public void putAll(Map<? extends Class<?>,? extends Renderer> map) {
+        try {
+            super.putAll(map);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Renderer remove(Object key) {
+        try {
+            return super.remove(key);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            invalidate();
+        }
+    }
+
+    private void invalidate() { cache = new Cache(); }
+
     private Renderer configure(Renderer renderer) {
         if (renderer != null) {
             renderer.configure(this);
@@ -81,7 +136,10 @@ public class RendererMap extends TreeMap<Class<?>,Renderer> {
     /**
      * Method to create a
      * {@link ganymede.server.Message#execute_result(int,ObjectNode) mime bundle}
-     * and render an {@link Object} and any alternatives.
+     * and render an {@link Object} and any alternatives.  The
+     * {@link OutputBudget} is enforced on the complete bundle.  The
+     * bundle is not known to be published so
+     * {@link #onPublished(Runnable)} declines any actions.
      *
      * @param   object          The {@link Object} to encode.
      * @param   alternates      Optional alternate representations.
@@ -89,13 +147,73 @@ public class RendererMap extends TreeMap<Class<?>,Renderer> {
      * @return  The {@link ganymede.server.Message} {@code mime-bundle}.
      */
     public ObjectNode render(Object object, Object... alternates) {
+        return render(null, object, alternates);
+    }
+
+    /**
+     * Method to render an {@link Object} and any alternatives (see
+     * {@link #render(Object,Object...)}) and publish the resulting
+     * {@code mime-bundle}.  The actions registered with
+     * {@link #onPublished(Runnable)} while rendering are run once the
+     * {@link Publisher} returns successfully.
+     *
+     * @param   publisher       The {@link Publisher}.
+     * @param   object          The {@link Object} to encode.
+     * @param   alternates      Optional alternate representations.
+     *
+     * @throws  Exception       If the {@link Publisher} throws an
+     *                          {@link Exception}.
+     */
+    public void publish(Publisher publisher, Object object, Object... alternates) throws Exception {
+        var publication = new Publication();
+
+        publisher.publish(render(publication, object, alternates));
+
+        publication.actions.forEach(Runnable::run);
+    }
+
+    private ObjectNode render(Publication publication, Object object, Object... alternates) {
         var bundle = new ObjectNode(JsonNodeFactory.instance);
+        var previous = PUBLICATION.get();
 
-        renderTo(bundle, object, alternates);
+        PUBLICATION.set(publication);
+
+        try {
+            renderTo(bundle, object, alternates);
+        } finally {
+            PUBLICATION.set(previous);
+        }
+
+        OutputBudget.enforce(bundle);
 
         return bundle;
     }
 
+    /**
+     * Method to register an action to be run once the bundle being
+     * rendered on the current thread has been published.  A
+     * {@link Renderer} may use this to start work that will update the
+     * output by {@code display_id}.  Actions are only accepted while the
+     * top-level {@link Object} is rendered by
+     * {@link #publish(Publisher,Object,Object...)}; a {@link Renderer}
+     * must not emit output that depends on the action otherwise.
+     *
+     * @param   action          The {@link Runnable} action.
+     *
+     * @return  {@code true} if the action will be run on publication;
+     *          {@code false} otherwise.
+     */
+    public boolean onPublished(Runnable action) {
+        var publication = PUBLICATION.get();
+        var accepted = (publication != null && publication.depth == 1);
+
+        if (accepted) {
+            publication.actions.add(action);
+        }
+
+        return accepted;
+    }
+
     /**
      * Method to render an {@link Object} to a {@code mime-bundle}.
      *
@@ -105,8 +223,19 @@ public class RendererMap extends TreeMap<Class<?>,Renderer> {
      */
     public void renderTo(ObjectNode bundle, Object object, Object... alternates) {
         var type = (object != null) ? object.getClass() : Object.class;
+        var publication = PUBLICATION.get();
+
+        if (publication != null) {
+            publication.depth += 1;
+        }
 
-        reload().find(type).ifPresent(t -> t.renderTo(bundle, object));
+        try {
+            reload().find(type).ifPresent(t -> t.renderTo(bundle, object));
+        } finally {
+            if (publication != null) {
+                publication.depth -= 1;
+            }
+        }
 
         if (alternates != null) {
             for (var alternate : alternates) {
@@ -119,13 +248,57 @@ public class RendererMap extends TreeMap<Class<?>,Renderer> {
     }
 
     private Optional<Renderer> find(Class<?> type) {
-        var value =
-            entrySet().stream()
-            .filter(t -> t.getKey().isAssignableFrom(type))
-            .map(t -> t.getValue())
-            .findFirst();
+        var cache = this.cache;
+
+        if (cache == null) {
+            this.cache = cache = new Cache();
+        }
 
-        return value;
+        return cache.get(type);
+    }
+
+    /**
+     * Memoized most-specific {@link Renderer} for each runtime
+     * {@link Class}:  Among the keys assignable from the type (including
+     * interfaces and array supertypes), the first (in map order) that is
+     * not a supertype of another candidate.  Replaced whenever the map is
+     * modified.
+     */
+    @NoArgsConstructor @ToString
+    private class Cache extends ClassValue<Optional<Renderer>> {
+        @Override
+        protected Optional<Renderer> computeValue(Class<?> type) {
+            var candidates =
+                keySet().stream()
+                .filter(t -> t.isAssignableFrom(type))
+                .collect(toList());
+            var value =
+                candidates.stream()
+                .filter(t -> candidates.stream().noneMatch(u -> u != t && t.isAssignableFrom(u)))
+                .findFirst()
+                .map(RendererMap.this::get);
+
+            return value;
+        }
+    }
+
+    /**
+     * Functional interface to publish a rendered {@code mime-bundle}.
+     * See {@link #publish(Publisher,Object,Object...)}.
+     */
+    @FunctionalInterface
+    public interface Publisher {
+        public void publish(ObjectNode bundle) throws Exception;
+    }
+
+    /*
+     * Actions to run once the bundle is published and the current nesting
+     * of renderTo() calls (only the top-level Renderer may register).
+     */
+    @NoArgsConstructor @ToString
+    private static class Publication {
+        private final List<Runnable> actions = new ArrayList<>();
+        private int depth = 0;
     }
 
     @NoArgsConstructor @ToString
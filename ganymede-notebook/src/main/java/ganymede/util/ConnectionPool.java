@@ -0,0 +1,404 @@
+package ganymede.util;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Synchronized;
+import lombok.ToString;
+import org.jooq.ConnectionProvider;
+import org.jooq.exception.DataAccessException;
+
+/**
+ * Minimal JDBC {@link Connection} pool implementing jOOQ's
+ * {@link ConnectionProvider}.  Idle {@link Connection}s are validated
+ * (with {@link #getValidationQuery() validation query} or
+ * {@link Connection#isValid(int)}) before reuse and evicted after
+ * {@link #getIdleTimeout() idle timeout}.  {@link Connection}s held longer
+ * than {@link #getLeakThreshold() leak threshold} are reported (once) with
+ * the stack trace of the acquiring thread.  Validation, connection, and
+ * rollback are performed without holding the pool lock.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class ConnectionPool implements ConnectionProvider, AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final long VALIDATION_INTERVAL_MILLIS = 1000;
+
+    @ToString.Include
+    private final String url;
+    private final String username;
+    private final String password;
+    @Getter @Setter
+    private int maximumSize = 4;
+    @Getter @Setter
+    private String validationQuery = null;
+    @Getter @Setter
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    @Getter @Setter
+    private Duration leakThreshold = Duration.ofMinutes(10);
+    @Getter @Setter
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private final Map<Connection,Lease> leased = new IdentityHashMap<>();
+    private long created = 0;
+    private long acquired = 0;
+    private long released = 0;
+    private long invalid = 0;
+    private long evicted = 0;
+    private long leaks = 0;
+    private long waits = 0;
+    private int pending = 0;
+    private boolean closed = false;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   url             The JDBC URL.
+     * @param   username        The JDBC Username.
+     * @param   password        The JDBC Password.
+     */
+    public ConnectionPool(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /*
+     * A slot is reserved (under the lock) and the idle Connection is
+     * validated or a new Connection is created without holding the lock
+     * so a slow or failing database does not block other borrowers.
+     */
+    @Override
+    public Connection acquire() throws DataAccessException {
+        var deadline = System.currentTimeMillis() + acquireTimeout.toMillis();
+        Connection connection = null;
+
+        try {
+            while (connection == null) {
+                var expired = new ArrayList<Connection>();
+                Idle entry = null;
+
+                try {
+                    entry = reserve(deadline, expired);
+                } finally {
+                    expired.forEach(this::close);
+                }
+
+                var created = false;
+
+                try {
+                    if (entry != null) {
+                        if (isValid(entry)) {
+                            connection = entry.getConnection();
+                        } else {
+                            close(entry.getConnection());
+                        }
+                    } else {
+                        connection = DriverManager.getConnection(url, username, password);
+                        created = true;
+                    }
+                } finally {
+                    lease(connection, entry, created);
+                }
+            }
+        } catch (SQLException exception) {
+            throw new DataAccessException(exception.getMessage(), exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for connection to " + url, exception);
+        } finally {
+            detectLeaks();
+        }
+
+        return connection;
+    }
+
+    /*
+     * Returns an idle entry to validate or null if a new Connection
+     * should be created.  Either way, the slot is counted as pending until
+     * lease().
+     */
+    @Synchronized
+    private Idle reserve(long deadline, List<Connection> expired) throws InterruptedException {
+        Idle entry = null;
+        var reserved = false;
+
+        while (! reserved) {
+            evict(expired);
+
+            if (! idle.isEmpty()) {
+                entry = idle.pollFirst();
+                reserved = true;
+            } else if (leased.size() + pending < Math.max(1, maximumSize)) {
+                reserved = true;
+            } else {
+                var remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    throw new DataAccessException("Timed out waiting for connection to " + url
+                                                  + " (" + leased.size() + " in use)");
+                }
+
+                waits += 1;
+                $lock.wait(remaining);
+            }
+        }
+
+        pending += 1;
+
+        return entry;
+    }
+
+    @Synchronized
+    private void lease(Connection connection, Idle entry, boolean created) {
+        pending -= 1;
+
+        if (connection != null) {
+            leased.put(connection, new Lease());
+            acquired += 1;
+
+            if (created) {
+                this.created += 1;
+            }
+        } else if (entry != null) {
+            invalid += 1;
+        }
+
+        $lock.notifyAll();
+    }
+
+    /*
+     * The Connection keeps its slot (as pending) while it is rolled back
+     * outside the lock.
+     */
+    @Override
+    public void release(Connection connection) throws DataAccessException {
+        if (unlease(connection)) {
+            var reusable = false;
+
+            try {
+                if (! connection.isClosed()) {
+                    if (! connection.getAutoCommit()) {
+                        connection.rollback();
+                        connection.setAutoCommit(true);
+                    }
+
+                    reusable = true;
+                }
+            } catch (SQLException exception) {
+                reusable = false;
+            }
+
+            if (! restore(connection, reusable)) {
+                close(connection);
+            }
+        } else {
+            close(connection);
+        }
+
+        detectLeaks();
+    }
+
+    @Synchronized
+    private boolean unlease(Connection connection) {
+        var unleased = (leased.remove(connection) != null);
+
+        if (unleased) {
+            released += 1;
+            pending += 1;
+        }
+
+        return unleased;
+    }
+
+    @Synchronized
+    private boolean restore(Connection connection, boolean reusable) {
+        pending -= 1;
+
+        var restored = reusable && (! closed);
+
+        if (restored) {
+            idle.addFirst(new Idle(connection));
+        } else if (! reusable) {
+            invalid += 1;
+        }
+
+        $lock.notifyAll();
+
+        return restored;
+    }
+
+    /**
+     * Method to report (once) any {@link Connection}s leased longer than
+     * {@link #getLeakThreshold() leak threshold}.  Called on every
+     * {@link #acquire()} and {@link #release(Connection)}.
+     */
+    public void detectLeaks() {
+        findLeaks().forEach(t -> t.printStackTrace(System.err));
+    }
+
+    @Synchronized
+    private List<Throwable> findLeaks() {
+        var list = new ArrayList<Throwable>();
+        var now = System.currentTimeMillis();
+
+        for (var lease : leased.values()) {
+            if ((! lease.isReported()) && (now - lease.getTime()) > leakThreshold.toMillis()) {
+                lease.setReported(true);
+                leaks += 1;
+
+                var exception = new IllegalStateException("Connection to " + url + " leased for more than " + leakThreshold);
+
+                exception.setStackTrace(lease.getTrace().getStackTrace());
+                list.add(exception);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Method to get {@link ConnectionPool} statistics.
+     *
+     * @return  The {@link Map} of statistic names and values.
+     */
+    public Map<String,Object> stats() {
+        detectLeaks();
+
+        var expired = new ArrayList<Connection>();
+        var map = snapshot(expired);
+
+        expired.forEach(this::close);
+
+        return map;
+    }
+
+    @Synchronized
+    private Map<String,Object> snapshot(List<Connection> expired) {
+        evict(expired);
+
+        var map = new LinkedHashMap<String,Object>();
+
+        map.put("maximumSize", maximumSize);
+        map.put("active", leased.size());
+        map.put("idle", idle.size());
+        map.put("created", created);
+        map.put("acquired", acquired);
+        map.put("released", released);
+        map.put("invalid", invalid);
+        map.put("evicted", evicted);
+        map.put("waits", waits);
+        map.put("leaks", leaks);
+
+        return map;
+    }
+
+    @Override
+    public void close() {
+        drain().forEach(this::close);
+    }
+
+    @Synchronized
+    private List<Connection> drain() {
+        var list = new ArrayList<Connection>();
+
+        closed = true;
+        idle.forEach(t -> list.add(t.getConnection()));
+        idle.clear();
+        list.addAll(leased.keySet());
+        leased.clear();
+        $lock.notifyAll();
+
+        return list;
+    }
+
+    private void evict(List<Connection> expired) {
+        var now = System.currentTimeMillis();
+        var iterator = idle.descendingIterator();
+
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+
+            if ((now - entry.getTime()) > idleTimeout.toMillis()) {
+                iterator.remove();
+                evicted += 1;
+                expired.add(entry.getConnection());
+            }
+        }
+    }
+
+    private boolean isValid(Idle entry) {
+        var valid = false;
+        var connection = entry.getConnection();
+
+        try {
+            if ((System.currentTimeMillis() - entry.getTime()) < VALIDATION_INTERVAL_MILLIS) {
+                valid = (! connection.isClosed());
+            } else if (validationQuery != null) {
+                try (var statement = connection.createStatement()) {
+                    statement.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+                    statement.execute(validationQuery);
+                }
+
+                valid = true;
+            } else {
+                valid = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            }
+        } catch (SQLException exception) {
+            valid = false;
+        }
+
+        return valid;
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException exception) {
+        }
+    }
+
+    @Getter
+    private static class Idle {
+        private final Connection connection;
+        private final long time = System.currentTimeMillis();
+
+        public Idle(Connection connection) { this.connection = connection; }
+    }
+
+    @Getter @Setter
+    private static class Lease {
+        private final long time = System.currentTimeMillis();
+        private final Throwable trace = new Throwable();
+        private boolean reported = false;
+    }
+}
@@ -0,0 +1,389 @@
+package ganymede.util;
+/*-
+ * ##########################################################################
+ * Ganymede
+ * %%
+ * Copyright (C) 2021 - 2023 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Synchronized;
+import lombok.ToString;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Time-to-live and size-bounded LRU cache of query {@link Result}s.
+ * {@link Result}s whose estimated size exceeds the
+ * {@link #getSpillBytes() spill threshold} are written column-by-column to
+ * a local file and read back on a hit.  Large {@link Result}s that cannot
+ * be serialized are not cached.  Expired and least-recently-used entries
+ * (and their files) are evicted on {@link #put(List,Result,boolean,Duration) put}
+ * to keep the in-memory and spilled sizes within
+ * {@link #getMaximumBytes()} and {@link #getMaximumDiskBytes()}.  Hits
+ * return a copy of the cached {@link Result}.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class ResultCache {
+
+    /**
+     * Default spill directory
+     * ({@code ${java.io.tmpdir}/ganymede/results}).
+     */
+    public static final Path DEFAULT_DIRECTORY =
+        Paths.get(System.getProperty("java.io.tmpdir"), "ganymede", "results");
+
+    private final Map<List<?>,Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final Path directory;
+    @Getter
+    private final long maximumBytes;
+    @Getter
+    private final long spillBytes;
+    @Getter
+    private final long maximumDiskBytes;
+    @ToString.Include
+    private long bytes = 0;
+    @ToString.Include
+    private long diskBytes = 0;
+    private Thread cleaner = null;
+    @ToString.Include
+    private long hits = 0;
+    @ToString.Include
+    private long misses = 0;
+
+    /**
+     * No-argument constructor (64 MB in memory, results larger than 8 MB
+     * spilled to {@link #DEFAULT_DIRECTORY} up to 512 MB).
+     */
+    public ResultCache() { this(DEFAULT_DIRECTORY, 64L << 20, 8L << 20, 512L << 20); }
+
+    /**
+     * Constructor.
+     *
+     * @param   directory       The spill directory.
+     * @param   maximumBytes    The maximum (estimated) in-memory size.
+     * @param   spillBytes      The (estimated) size above which results
+     *                          are spilled to disk.
+     * @param   maximumDiskBytes
+     *                          The maximum total size of spilled results.
+     */
+    public ResultCache(Path directory, long maximumBytes, long spillBytes, long maximumDiskBytes) {
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        this.spillBytes = spillBytes;
+        this.maximumDiskBytes = maximumDiskBytes;
+    }
+
+    /**
+     * Method to get a cached {@link Result}.
+     *
+     * @param   dsl             The {@link DSLContext} used to reconstruct
+     *                          spilled {@link Result}s.
+     * @param   key             The cache key.
+     *
+     * @return  The cached {@link Hit} (with a copy of the {@link Result})
+     *          or {@code null} if none (or expired).
+     */
+    @Synchronized
+    public Hit get(DSLContext dsl, List<?> key) {
+        Hit hit = null;
+        var entry = map.get(key);
+
+        if (entry != null) {
+            var result = entry.isExpired() ? null : entry.copy(dsl);
+
+            if (result != null) {
+                hit = new Hit(result, entry.isTruncated(), entry.getAge());
+            } else {
+                remove(key);
+            }
+        }
+
+        if (hit != null) {
+            hits += 1;
+        } else {
+            misses += 1;
+        }
+
+        return hit;
+    }
+
+    /**
+     * Method to cache a {@link Result}.
+     *
+     * @param   key             The cache key.
+     * @param   result          The {@link Result}.
+     * @param   truncated       Whether the {@link Result} was truncated.
+     * @param   ttl             The time-to-live.
+     */
+    @Synchronized
+    public void put(List<?> key, Result<Record> result, boolean truncated, Duration ttl) {
+        remove(key);
+        purge();
+
+        var entry = new Entry(result, truncated, ttl);
+
+        if (entry.getBytes() > spillBytes) {
+            if (cleaner == null) {
+                cleaner = new Thread(this::clear);
+                Runtime.getRuntime().addShutdownHook(cleaner);
+            }
+
+            entry.spill(directory);
+        }
+
+        var admit =
+            entry.isSpilled()
+                ? (entry.getDiskBytes() <= maximumDiskBytes)
+                : (entry.getBytes() <= Math.min(spillBytes, maximumBytes));
+
+        if (admit) {
+            map.put(key, entry);
+            bytes += entry.getMemoryBytes();
+            diskBytes += entry.getDiskBytes();
+
+            var iterator = map.entrySet().iterator();
+
+            while ((bytes > maximumBytes || diskBytes > maximumDiskBytes) && iterator.hasNext()) {
+                var eldest = iterator.next().getValue();
+
+                if (eldest != entry) {
+                    iterator.remove();
+                    release(eldest);
+                }
+            }
+        } else {
+            entry.delete();
+        }
+    }
+
+    /**
+     * Method to remove all entries.
+     */
+    @Synchronized
+    public void clear() {
+        map.values().forEach(Entry::delete);
+        map.clear();
+        bytes = 0;
+        diskBytes = 0;
+    }
+
+    /**
+     * Method to get cache statistics.
+     *
+     * @return  The {@link Map} of statistic names and values.
+     */
+    @Synchronized
+    public Map<String,Object> stats() {
+        var stats = new LinkedHashMap<String,Object>();
+
+        stats.put("entries", map.size());
+        stats.put("bytes", bytes);
+        stats.put("diskBytes", diskBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+
+        return stats;
+    }
+
+    private void remove(List<?> key) {
+        var entry = map.remove(key);
+
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    private void purge() {
+        var iterator = map.values().iterator();
+
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+
+            if (entry.isExpired()) {
+                iterator.remove();
+                release(entry);
+            }
+        }
+    }
+
+    private void release(Entry entry) {
+        bytes -= entry.getMemoryBytes();
+        diskBytes -= entry.getDiskBytes();
+        entry.delete();
+    }
+
+    private static long estimate(Result<Record> result) {
+        var bytes = 64L * (result.size() + 1);
+
+        for (var record : result) {
+            for (int i = 0, n = record.size(); i < n; i += 1) {
+                var value = record.get(i);
+
+                if (value == null) {
+                    bytes += 8;
+                } else if (value instanceof CharSequence) {
+                    bytes += 40 + 2 * ((CharSequence) value).length();
+                } else if (value instanceof byte[]) {
+                    bytes += 16 + ((byte[]) value).length;
+                } else {
+                    bytes += 32;
+                }
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Cache hit.
+     */
+    @AllArgsConstructor(access = PRIVATE) @Getter
+    public static class Hit {
+        private final Result<Record> result;
+        private final boolean truncated;
+        private final Duration age;
+    }
+
+    @Getter
+    private static class Entry {
+        private final long created = System.currentTimeMillis();
+        private final long expires;
+        private final Field<?>[] fields;
+        private final int size;
+        private final boolean truncated;
+        private final long bytes;
+        private Result<Record> result;
+        private Path path = null;
+        private long diskBytes = 0;
+
+        private Entry(Result<Record> result, boolean truncated, Duration ttl) {
+            this.expires = created + ttl.toMillis();
+            this.fields = result.fields();
+            this.size = result.size();
+            this.truncated = truncated;
+            this.bytes = estimate(result);
+            this.result = result;
+        }
+
+        public Duration getAge() {
+            return Duration.ofMillis(System.currentTimeMillis() - created);
+        }
+
+        private boolean isExpired() { return System.currentTimeMillis() > expires; }
+
+        private boolean isSpilled() { return path != null; }
+
+        private long getMemoryBytes() { return isSpilled() ? 0 : bytes; }
+
+        public Result<Record> copy(DSLContext dsl) {
+            Result<Record> result = null;
+
+            if (this.result != null) {
+                result = dsl.newResult(fields);
+
+                for (var record : this.result) {
+                    var copy = dsl.newRecord(fields);
+
+                    copy.fromArray(record.intoArray());
+                    copy.changed(false);
+                    result.add(copy);
+                }
+            } else if (path != null) {
+                try (var in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                    var rows = new Object[size][fields.length];
+
+                    for (int j = 0; j < fields.length; j += 1) {
+                        var column = (Object[]) in.readObject();
+
+                        for (int i = 0; i < size; i += 1) {
+                            rows[i][j] = column[i];
+                        }
+                    }
+
+                    result = dsl.newResult(fields);
+
+                    for (var row : rows) {
+                        var record = dsl.newRecord(fields);
+
+                        record.fromArray(row);
+                        record.changed(false);
+                        result.add(record);
+                    }
+                } catch (Exception exception) {
+                    result = null;
+                }
+            }
+
+            return result;
+        }
+
+        private void spill(Path directory) {
+            try {
+                Files.createDirectories(directory);
+
+                path = Files.createTempFile(directory, null, ".columns");
+
+                try (var out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+                    for (int j = 0; j < fields.length; j += 1) {
+                        var column = new Object[size];
+
+                        for (int i = 0; i < size; i += 1) {
+                            column[i] = result.get(i).get(j);
+                        }
+
+                        out.writeObject(column);
+                        out.reset();
+                    }
+                }
+
+                diskBytes = Files.size(path);
+                result = null;
+            } catch (Exception exception) {
+                delete();
+            }
+        }
+
+        private void delete() {
+            if (path != null) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (Exception exception) {
+                }
+
+                path = null;
+                diskBytes = 0;
+            }
+        }
+    }
+}
@@ -23,10 +23,14 @@ import java.util.Objects;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import lombok.Synchronized;
 
 /**
- * {@link ServiceLoader Service} {@link java.util.Map}.
+ * {@link ServiceLoader Service} {@link java.util.Map}.  Provider discovery
+ * is only repeated by {@link #reload()} after the classpath
+ * {@link #invalidate() generation} changes.
  *
  * @param       <T>             The service type.
  *
@@ -36,10 +40,12 @@ public class ServiceProviderMap<T> extends TreeMap<Class<? extends T>,T> {
     private static final long serialVersionUID = 5423712518719767597L;
 
     private static final Comparator<Class<?>> COMPARATOR = Comparator.comparing(Class::getName);
+    private static final AtomicLong GENERATION = new AtomicLong(0);
 
     /** @serial */ private final Class<T> service;
     /** @serial */ private final ServiceLoader<T> loader;
     /** @serial */ private Function<ServiceLoader.Provider<T>,T> compute;
+    /** @serial */ private long generation = -1;
 
     /**
      * Sole constructor.
@@ -68,23 +74,38 @@ public class ServiceProviderMap<T> extends TreeMap<Class<? extends T>,T> {
      */
     public ClassLoader getClassLoader() { return service.getClassLoader(); }
 
+    /**
+     * Static method to signal the classpath has changed.  Subsequent calls
+     * to {@link #reload()} on any {@link ServiceProviderMap} will rescan
+     * for providers.
+     */
+    public static void invalidate() { GENERATION.incrementAndGet(); }
+
     /**
      * Reload {@link ServiceLoader} and {@link #put(Object,Object)} newly
-     * discovered entries.
+     * discovered entries if the classpath has changed since the last
+     * call (see {@link #invalidate()}).
      *
      * @return  {@link.this}
      */
+    @Synchronized
     public ServiceProviderMap<T> reload() {
-        loader.reload();
+        var current = GENERATION.get();
+
+        if (generation != current) {
+            generation = current;
+
+            loader.reload();
 
-        var iterator = loader.stream().iterator();
+            var iterator = loader.stream().iterator();
 
-        while (iterator.hasNext()) {
-            var provider = iterator.next();
+            while (iterator.hasNext()) {
+                var provider = iterator.next();
 
-            try {
-                computeIfAbsent(provider.type(), k -> compute.apply(provider));
-            } catch (ServiceConfigurationError error) {
+                try {
+                    computeIfAbsent(provider.type(), k -> compute.apply(provider));
+                } catch (ServiceConfigurationError error) {
+                }
             }
         }
 
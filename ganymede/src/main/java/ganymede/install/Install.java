@@ -87,6 +87,9 @@ public class Install implements ApplicationRunner {
     @Value("${env:}")
     private List<String> envvars = null;
 
+    @Value("${sysproperty:}")
+    private List<String> sysproperties = null;
+
     @Value("${copy-jar:true}")
     private boolean copy_jar = true;
 
@@ -189,6 +192,14 @@ public class Install implements ApplicationRunner {
                     log.warn("{}: Could not create", repository, exception);
                 }
             }
+            /*
+             * Additional system properties
+             */
+            for (var sysproperty : sysproperties) {
+                var pair = sysproperty.split("=", 2);
+
+                sysProperties.put(pair[0], (pair.length > 1) ? pair[1] : "");
+            }
             /*
              * kernelspec
              */